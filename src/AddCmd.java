@@ -1,6 +1,9 @@
+import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.StringJoiner;
 
 /**
  * Add command that allows books to be added to the database with the input of a file path.
@@ -10,11 +13,39 @@ public class AddCmd extends LibraryCommand {
     /** Immutable instance field for path name. */
     private Path pathName;
 
+    /** Instance field for the mode used to load the file. */
+    private LoadMode loadMode;
+
+    /** Instance field indicating that invalid rows are quarantined instead of failing the load. */
+    private boolean tolerant;
+
+    /** Instance field indicating that the path is a library snapshot. */
+    private boolean snapshot;
+
+    /**
+     * Instance field for the glob pattern the names of the files to be loaded
+     * have to match. The path is the directory holding them in this case.
+     * Null if a single file is to be loaded.
+     */
+    private String glob;
+
+    /** Indicator for a load option given in front of the path. */
+    private static final String OPTION_PREFIX = "--";
+
+    /** Delimiter between a load option and the rest of the argument. */
+    private static final String OPTION_DELIMITER = " ";
+
+    /** Option enabling the tolerant mode, which can be combined with a load mode. */
+    private static final String TOLERANT_OPTION = "tolerant";
+
     /** Indicator for a csv file. */
     private static final String REQUIRED_CHARACTERS = ".csv";
 
-    /** Required minimum length to indicate csv file. */
-    private static final int REQUIRED_CHARACTERS_LENGTH = 4;
+    /** Characters with a special meaning in glob patterns. */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /** Glob pattern matching all book data files of a directory. */
+    private static final String DIRECTORY_GLOB = createDirectoryGlob();
 
     /**
      * Create the add command and initialise it with
@@ -31,7 +62,13 @@ public class AddCmd extends LibraryCommand {
 
     /**
      * Parses the argument input. Checks the input has the required ending to
-     * successfully read a csv file.
+     * successfully read a csv file, plain or compressed with gzip (.csv.gz)
+     * or raw deflate (.csv.deflate), or a library snapshot. The path may be
+     * preceded by a load option such as --mapped and by --tolerant, which
+     * quarantines invalid rows instead of failing the load.
+     *
+     * Several files can be given as a directory, which stands for all csv files
+     * in it, or as a glob pattern in the last path element, e.g. data/*.csv.
      *
      * @param argumentInput input from user.
      * @return true if argument is valid.
@@ -41,16 +78,55 @@ public class AddCmd extends LibraryCommand {
     @Override
     protected boolean parseArguments(String argumentInput) {
         Objects.requireNonNull(argumentInput, "Path name cannot be null");
-        pathName = convertToPath(argumentInput);
-        String finalCharacters = "";
+        loadMode = LoadMode.STREAM;
+        tolerant = false;
+        String pathInput = argumentInput;
 
-        if (argumentInput.length() > REQUIRED_CHARACTERS_LENGTH) {
-            finalCharacters = argumentInput.substring(argumentInput.length()-REQUIRED_CHARACTERS_LENGTH);
-        } else {
-            finalCharacters = argumentInput;
+        while (pathInput.startsWith(OPTION_PREFIX)) {
+            int delimiterIdx = pathInput.indexOf(OPTION_DELIMITER);
+            if (delimiterIdx == -1) {
+                return false;
+            }
+
+            String option = pathInput.substring(OPTION_PREFIX.length(), delimiterIdx);
+            if (option.equalsIgnoreCase(TOLERANT_OPTION)) {
+                tolerant = true;
+            } else {
+                LoadMode mode = parseLoadMode(option);
+                if (mode == null) {
+                    return false;
+                }
+                loadMode = mode;
+            }
+            pathInput = pathInput.substring(delimiterIdx + 1);
         }
 
-        if (finalCharacters.equals(REQUIRED_CHARACTERS)) {
+        snapshot = pathInput.endsWith(BinarySnapshot.FILE_SUFFIX);
+        glob = null;
+        if (pathInput.isEmpty()) {
+            return false;
+        }
+
+        if (containsGlob(pathInput)) {
+            int separatorIdx = Math.max(pathInput.lastIndexOf('/'), pathInput.lastIndexOf(File.separatorChar));
+            String directoryInput = pathInput.substring(0, separatorIdx + 1);
+            String fileGlob = pathInput.substring(separatorIdx + 1);
+            if (containsGlob(directoryInput) || snapshot || !isBookDataFile(fileGlob)) {
+                return false;
+            }
+
+            pathName = convertToPath(directoryInput);
+            glob = fileGlob;
+            return true;
+        }
+
+        pathName = convertToPath(pathInput);
+        if (Files.isDirectory(pathName)) {
+            glob = DIRECTORY_GLOB;
+            return true;
+        }
+
+        if (isBookDataFile(pathInput) || snapshot) {
             return true;
         } else {
             return false;
@@ -58,6 +134,66 @@ public class AddCmd extends LibraryCommand {
 
     }
 
+    /**
+     * Checks the given path names a csv file, either plain or compressed.
+     *
+     * @param pathInput path given by the user.
+     * @return true if the path ends with .csv, optionally followed by
+     * the ending of a supported compression format.
+     */
+    private boolean isBookDataFile(String pathInput) {
+        for (Compression compression : Compression.values()) {
+            if (pathInput.endsWith(REQUIRED_CHARACTERS + compression.getSuffix())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the given input holds any glob pattern characters.
+     *
+     * @param input path or part of a path given by the user.
+     * @return true if the input holds a glob pattern.
+     */
+    private boolean containsGlob(String input) {
+        for (int i = 0; i < GLOB_CHARACTERS.length(); i++) {
+            if (input.indexOf(GLOB_CHARACTERS.charAt(i)) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the glob pattern matching all plain and compressed csv files.
+     *
+     * @return glob pattern such as *{.csv,.csv.gz}
+     */
+    private static String createDirectoryGlob() {
+        StringJoiner alternatives = new StringJoiner(",", "*{", "}");
+        for (Compression compression : Compression.values()) {
+            alternatives.add(REQUIRED_CHARACTERS + compression.getSuffix());
+        }
+        return alternatives.toString();
+    }
+
+    /**
+     * Translate the given option to the corresponding load mode.
+     *
+     * @param option option without its prefix.
+     * @return load mode associated with the option or null if no
+     * association was found.
+     */
+    private LoadMode parseLoadMode(String option) {
+        for (LoadMode mode : LoadMode.values()) {
+            if (mode.name().equalsIgnoreCase(option)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
     /**
      * Converts the argumentInput into a Path data type.
      *
@@ -72,7 +208,7 @@ public class AddCmd extends LibraryCommand {
 
     /**
      * Execute the add command. This adds data from the inputted csv
-     * pathname into the library.
+     * or snapshot pathname into the library.
      *
      * @param data book data to be considered for command execution.
      * @throws NullPointerException when data is null.
@@ -80,7 +216,13 @@ public class AddCmd extends LibraryCommand {
     @Override
     public void execute(LibraryData data) {
         Objects.requireNonNull(data, "Given library data must not be null.");
-        data.loadData(pathName);
+        if (glob != null) {
+            data.loadFiles(pathName, glob, loadMode, tolerant);
+        } else if (snapshot) {
+            data.loadSnapshot(pathName);
+        } else {
+            data.loadData(pathName, loadMode, tolerant);
+        }
    }
 
 }
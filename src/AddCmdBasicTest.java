@@ -1,10 +1,25 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class AddCmdBasicTest extends CommandTest {
 
@@ -35,12 +50,20 @@ public class AddCmdBasicTest extends CommandTest {
         CommandTestUtils.checkArgumentInput(testCommand, false, invalidPath);
         invalidPath = "this/is/not/a/csv/file.txt";
         CommandTestUtils.checkArgumentInput(testCommand, false, invalidPath);
+        CommandTestUtils.checkArgumentInput(testCommand, false, "this/*/books.csv");
+        CommandTestUtils.checkArgumentInput(testCommand, false, "this/is/*.txt");
     }
 
     @Test
     public void testParseArgumentsLegalArgument() {
         CommandTestUtils.checkArgumentInput(testCommand, true, TEST_PATH);
         CommandTestUtils.checkArgumentInput(testCommand, true, "this/is/some/test/path/for/books.csv");
+        CommandTestUtils.checkArgumentInput(testCommand, true, "this/is/some/test/path/for/books.csv.gz");
+        CommandTestUtils.checkArgumentInput(testCommand, true, "--mapped this/is/some/test/path/for/books.csv.deflate");
+        CommandTestUtils.checkArgumentInput(testCommand, true, "--follow this/is/some/test/path/for/books.csv");
+        CommandTestUtils.checkArgumentInput(testCommand, true, "this/is/some/test/path/for/*.csv");
+        CommandTestUtils.checkArgumentInput(testCommand, true, "--mapped books??.csv.gz");
+        CommandTestUtils.checkArgumentInput(testCommand, true, "--tolerant --parallel books.csv");
     }
 
     // ------------------------- execute tests --------------------
@@ -65,4 +88,374 @@ public class AddCmdBasicTest extends CommandTest {
                     expectedBookValues.get(i));
         }
     }
+
+    @Test
+    public void testExecuteLoadGzipData() throws IOException {
+        Path compressedPath = Files.createTempFile("books", ".csv.gz");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressedPath))) {
+                Files.copy(Paths.get(TEST_PATH), out);
+            }
+            checkCompressedLoad(compressedPath);
+        } finally {
+            Files.deleteIfExists(compressedPath);
+        }
+    }
+
+    @Test
+    public void testExecuteLoadDeflateData() throws IOException {
+        Path compressedPath = Files.createTempFile("books", ".csv.deflate");
+        try {
+            try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(compressedPath),
+                    new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+                Files.copy(Paths.get(TEST_PATH), out);
+            }
+            checkCompressedLoad(compressedPath);
+        } finally {
+            Files.deleteIfExists(compressedPath);
+        }
+    }
+
+    private void checkCompressedLoad(Path compressedPath) {
+        // the mapped mode cannot read compressed files and falls back to streaming
+        testCommand = new AddCmd("--mapped " + compressedPath);
+        testCommand.execute(testLibrary);
+
+        List<BookEntry> books = testLibrary.getBookData();
+        assertEquals("Unexpected amount of books in library after loading compressed file.", 3, books.size());
+        BookEntryTestUtils.checkBookFieldValues(books.get(2), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                new Object[] { "Animal Farm", new String[] { "George Orwell" }, 3.91f, "452284244", 122 });
+    }
+
+    @Test
+    public void testExecuteFollowAppendedRows() throws IOException {
+        Path followedPath = Files.createTempFile("books", ".csv");
+        try {
+            Files.write(followedPath, "title,authors,rating,isbn,num_pages\nTitleB,AuthorB,4.1,ISBNB,100\n".getBytes());
+            testCommand = new AddCmd("--follow " + followedPath);
+            testCommand.execute(testLibrary);
+            assertEquals("Unexpected amount of books in library after following file.", 2,
+                    testLibrary.getBookData().size());
+
+            // the second appended row is not complete yet and must be left for the next poll
+            Files.write(followedPath, "TitleC,AuthorC,3.5,ISBNC,200\nTitleD,Auth".getBytes(),
+                    StandardOpenOption.APPEND);
+            assertEquals("Unexpected amount of books added by poll.", 1, testLibrary.pollFollowedFiles());
+            assertEquals("Unexpected amount of books added by poll without appended rows.", 0,
+                    testLibrary.pollFollowedFiles());
+
+            Files.write(followedPath, "orD,2.5,ISBND,300\n".getBytes(), StandardOpenOption.APPEND);
+            assertEquals("Unexpected amount of books added by poll.", 1, testLibrary.pollFollowedFiles());
+
+            List<BookEntry> books = testLibrary.getBookData();
+            assertEquals("Unexpected amount of books in library after polling.", 4, books.size());
+            BookEntryTestUtils.checkBookFieldValues(books.get(3), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                    new Object[] { "TitleD", new String[] { "AuthorD" }, 2.5f, "ISBND", 300 });
+        } finally {
+            Files.deleteIfExists(followedPath);
+        }
+    }
+
+    @Test
+    public void testExecuteLoadDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("books");
+        Path plainPath = directory.resolve("books01.csv");
+        Path compressedPath = directory.resolve("books02.csv.gz");
+        Path ignoredPath = directory.resolve("notes.txt");
+        try {
+            Files.copy(Paths.get(TEST_PATH), plainPath);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressedPath))) {
+                out.write("title,authors,rating,isbn,num_pages\nTitleB,AuthorB,4.1,ISBNB,100\n".getBytes());
+            }
+            Files.write(ignoredPath, "not book data".getBytes());
+
+            testCommand = new AddCmd("--mapped " + directory);
+            testCommand.execute(testLibrary);
+
+            List<BookEntry> books = testLibrary.getBookData();
+            assertEquals("Unexpected amount of books in library after loading directory.", 4, books.size());
+            // files are merged in file name order
+            BookEntryTestUtils.checkBookFieldValues(books.get(3), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                    new Object[] { "TitleB", new String[] { "AuthorB" }, 4.1f, "ISBNB", 100 });
+        } finally {
+            Files.deleteIfExists(plainPath);
+            Files.deleteIfExists(compressedPath);
+            Files.deleteIfExists(ignoredPath);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void testExecuteTolerantQuarantinesInvalidRows() throws IOException {
+        for (LoadMode mode : new LoadMode[] { LoadMode.STREAM, LoadMode.MAPPED, LoadMode.PARALLEL, LoadMode.LAZY,
+                LoadMode.COLUMNAR, LoadMode.OFFHEAP }) {
+            setup();
+            Path invalidPath = Files.createTempFile("books", ".csv");
+            Path quarantinePath = Paths.get(invalidPath + Quarantine.FILE_SUFFIX);
+            try {
+                Files.write(invalidPath, ("title,authors,rating,isbn,num_pages\n"
+                        + "TitleB,AuthorB,4.1,ISBNB,100\n"
+                        + "TitleC,AuthorC,not a rating,ISBNC,200\n"
+                        + "TitleD,AuthorD,3.5\n"
+                        + "TitleE,AuthorE,2.5,ISBNE,300\n").getBytes());
+
+                testCommand = new AddCmd("--tolerant --" + mode.name().toLowerCase() + " " + invalidPath);
+                testCommand.execute(testLibrary);
+
+                List<BookEntry> books = testLibrary.getBookData();
+                assertEquals("Unexpected amount of books in library after tolerant load in mode " + mode + ".", 3,
+                        books.size());
+                BookEntryTestUtils.checkBookFieldValues(books.get(2), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                        new Object[] { "TitleE", new String[] { "AuthorE" }, 2.5f, "ISBNE", 300 });
+
+                List<String> quarantined = Files.readAllLines(quarantinePath);
+                assertEquals("Unexpected amount of quarantined rows in mode " + mode + ".", 2, quarantined.size());
+                // rows are written with their line numbers, the header being line 1
+                assertTrue("Unexpected quarantined row: " + quarantined.get(0), quarantined.get(0).startsWith("3\t")
+                        && quarantined.get(0).endsWith("\tTitleC,AuthorC,not a rating,ISBNC,200"));
+                assertTrue("Unexpected quarantined row: " + quarantined.get(1), quarantined.get(1).startsWith("4\t")
+                        && quarantined.get(1).endsWith("\tTitleD,AuthorD,3.5"));
+            } finally {
+                Files.deleteIfExists(invalidPath);
+                Files.deleteIfExists(quarantinePath);
+            }
+        }
+    }
+
+    @Test
+    public void testExecuteLoadDuplicateData() {
+        testCommand.execute(testLibrary);
+        // entries parsed again are equal by value to the loaded ones
+        new AddCmd("--mapped " + TEST_PATH).execute(testLibrary);
+        assertEquals("Unexpected amount of books in library after loading file twice.", 3,
+                testLibrary.getBookData().size());
+
+        new RemoveCmd("TITLE Animal Farm").execute(testLibrary);
+        testCommand.execute(testLibrary);
+        assertEquals("Removed book expected to be loaded again.", 3, testLibrary.getBookData().size());
+    }
+
+    @Test
+    public void testExecuteLoadColumnarData() {
+        new AddCmd("--columnar " + TEST_PATH).execute(testLibrary);
+
+        List<BookEntry> books = testLibrary.getBookData();
+        assertTrue("Book data expected to be stored in columns.", books instanceof ColumnarBookList);
+        assertEquals("Unexpected amount of books in library after loading file.", 3, books.size());
+        BookEntryTestUtils.checkBookFieldValues(books.get(1), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                new Object[] { "The Changeling", new String[] { "Zilpha Keatley Snyder" }, 4.17f, "595321801", 228 });
+        assertEquals("Unexpected amount of books found by ISBN.", 1, testLibrary.findByISBN("595321801").size());
+
+        new AddCmd("--columnar " + TEST_PATH).execute(testLibrary);
+        assertEquals("Unexpected amount of books in library after loading file twice.", 3, books.size());
+
+        // entries created on access are removed by value
+        new RemoveCmd("TITLE Animal Farm").execute(testLibrary);
+        new RemoveCmd("AUTHOR AuthorA").execute(testLibrary);
+        assertEquals("Unexpected amount of books in library after removals.", 1, books.size());
+        assertEquals("Unexpected title of the remaining book.", "The Changeling", books.get(0).getTitle());
+    }
+
+    @Test
+    public void testExecuteLoadOffHeapData() {
+        new AddCmd("--offheap " + TEST_PATH).execute(testLibrary);
+
+        List<BookEntry> books = testLibrary.getBookData();
+        assertTrue("Book data expected to be stored off the heap.", books instanceof OffHeapBookList);
+        assertEquals("Unexpected amount of books in library after loading file.", 3, books.size());
+        BookEntryTestUtils.checkBookFieldValues(books.get(1), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                new Object[] { "The Changeling", new String[] { "Zilpha Keatley Snyder" }, 4.17f, "595321801", 228 });
+
+        new AddCmd("--offheap " + TEST_PATH).execute(testLibrary);
+        assertEquals("Unexpected amount of books in library after loading file twice.", 3, books.size());
+
+        new RemoveCmd("TITLE Animal Farm").execute(testLibrary);
+        new RemoveCmd("AUTHOR AuthorA").execute(testLibrary);
+        assertEquals("Unexpected amount of books in library after removals.", 1, books.size());
+        assertEquals("Unexpected title of the remaining book.", "The Changeling", books.get(0).getTitle());
+    }
+
+    @Test
+    public void testCompactStoragesKeepValuesExactly() {
+        List<BookEntry> expected = new ArrayList<>();
+        expected.add(new BookEntry("Numeric", new String[] { "AuthorA" }, 4.17f, "595321801", 228));
+        expected.add(new BookEntry("Check Digit", new String[] { "AuthorA" }, 0f, "043935806X", 870));
+        expected.add(new BookEntry("Leading Zeros", new String[] { "AuthorB" }, 5f, "0000123", 12));
+        expected.add(new BookEntry("Other ISBN", new String[] { "AuthorB" }, 3.333f, "isbn-13: 978", 99));
+        expected.add(new BookEntry("Negative Zero", new String[] { "AuthorC" }, -0f, "12345678901234567", 1));
+
+        List<List<BookEntry>> storages = new ArrayList<>();
+        storages.add(new ColumnarBookList());
+        storages.add(new OffHeapBookList());
+        for (List<BookEntry> storage : storages) {
+            storage.addAll(expected);
+            assertEquals("Books expected to be stored without loss in " + storage.getClass(), expected, storage);
+            for (BookEntry book : expected) {
+                assertTrue("Book expected to be found in " + storage.getClass(), storage.contains(book));
+            }
+        }
+
+        ColumnarBookList columns = (ColumnarBookList) storages.get(0);
+        assertEquals("Unexpected book found by packed ISBN.", expected.subList(1, 2), columns.selectByISBN("043935806X"));
+        assertEquals("Unexpected book found by other ISBN.", expected.subList(3, 4), columns.selectByISBN("isbn-13: 978"));
+        assertTrue("No book expected to be found by unknown ISBN.", columns.selectByISBN("43935806X").isEmpty());
+    }
+
+    @Test
+    public void testLazyRowsAcrossDecodeBlocks() throws IOException {
+        Path lazyPath = Files.createTempFile("books", ".csv");
+        try {
+            List<BookEntry> expected = writeRowsAcrossDecodeBlocks(lazyPath);
+            new AddCmd("--lazy " + lazyPath).execute(testLibrary);
+            List<BookEntry> books = testLibrary.getBookData();
+
+            assertTrue("Book data expected to be loaded lazily.", books instanceof LazyBookList);
+            assertEquals("Unexpected amount of books in library after lazy load.", expected.size() + 1, books.size());
+            // backwards, so every block is read again from a row in its middle
+            for (int row = expected.size() - 1; row >= 0; row--) {
+                assertEquals("Unexpected lazily loaded book at row " + row + ".", expected.get(row), books.get(row + 1));
+            }
+            assertEquals("Unexpected long title.", 150_000, books.get(2002).getTitle().length());
+
+            new AddCmd("--lazy " + lazyPath).execute(testLibrary);
+            assertEquals("Unexpected amount of books in library after loading file twice.", expected.size() + 1,
+                    testLibrary.getBookData().size());
+        } finally {
+            Files.deleteIfExists(lazyPath);
+        }
+    }
+
+    @Test
+    public void testLazyVersionTakenConcurrently() throws Exception {
+        Path lazyPath = Files.createTempFile("books", ".csv");
+        try {
+            List<BookEntry> expected = new ArrayList<>(testLibrary.getBookData());
+            expected.addAll(writeRowsAcrossDecodeBlocks(lazyPath));
+            new AddCmd("--lazy " + lazyPath).execute(testLibrary);
+
+            // all threads ask for the first version after the load at once, so they decode rows at the same time
+            int threads = 4;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<BookEntry>>> versions = new ArrayList<>();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                for (int t = 0; t < threads; t++) {
+                    versions.add(executor.submit(() -> {
+                        start.await();
+                        List<BookEntry> books = testLibrary.getCurrentVersion().getBookData();
+                        return new ArrayList<>(books);
+                    }));
+                }
+                start.countDown();
+                for (Future<List<BookEntry>> version : versions) {
+                    assertEquals("Version taken concurrently expected to hold the loaded books.", expected,
+                            version.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            Files.deleteIfExists(lazyPath);
+        }
+    }
+
+    @Test
+    public void testVersionsOfDecodingStoragesKeepTheirRows() {
+        for (String option : new String[] { "--lazy", "--columnar", "--offheap" }) {
+            setup();
+            new AddCmd(option + " " + TEST_PATH).execute(testLibrary);
+            LibraryVersion before = testLibrary.getCurrentVersion();
+            List<BookEntry> expected = new ArrayList<>(before.getBookData());
+
+            // entries are created on access instead of being held by the version
+            assertTrue("Version expected to create its entries on access with " + option,
+                    before.getBookData().get(1) != before.getBookData().get(1));
+
+            new RemoveCmd("TITLE Animal Farm").execute(testLibrary);
+            testLibrary.getBookData().add(0, new BookEntry("TitleB", new String[] { "AuthorB" }, 4.1f, "ISBNB", 100));
+            assertEquals("Earlier version expected to be unchanged with " + option, expected, before.getBookData());
+            assertEquals("Unexpected books in current version with " + option, 3,
+                    testLibrary.getCurrentVersion().getBookData().size());
+        }
+
+        // replacing lazily loaded book data closes its files, but earlier versions can still be read
+        setup();
+        new AddCmd("--lazy " + TEST_PATH).execute(testLibrary);
+        LibraryVersion lazyVersion = testLibrary.getCurrentVersion();
+        List<BookEntry> expected = new ArrayList<>(lazyVersion.getBookData());
+        new AddCmd("--columnar " + TEST_PATH).execute(testLibrary);
+        assertTrue("Book data expected to be stored in columns.", testLibrary.getBookData() instanceof ColumnarBookList);
+        assertEquals("Version of closed lazy book data expected to be readable.", expected, lazyVersion.getBookData());
+    }
+
+    @Test
+    public void testStoragesKeepEqualRowsApart() {
+        BookEntry book = new BookEntry("TitleB", new String[] { "AuthorB" }, 4.1f, "ISBNB", 100);
+        List<List<BookEntry>> storages = new ArrayList<>();
+        storages.add(new LazyBookList(new AuthorDictionary()));
+        storages.add(new ColumnarBookList());
+        storages.add(new OffHeapBookList());
+        for (List<BookEntry> storage : storages) {
+            // lists take duplicates like any list, only the library rejects them
+            storage.add(book);
+            storage.add(new BookEntry("TitleC", new String[] { "AuthorC" }, 3.5f, "ISBNC", 200));
+            storage.add(new BookEntry("TitleB", new String[] { "AuthorB" }, 4.1f, "ISBNB", 100));
+            assertEquals("Unexpected row of book in " + storage.getClass(), 0, storage.indexOf(book));
+
+            storage.remove(0);
+            assertTrue("Equal book expected to be kept in " + storage.getClass(), storage.contains(book));
+            assertEquals("Unexpected row of equal book in " + storage.getClass(), 1, storage.indexOf(book));
+
+            storage.removeIf(book::equals);
+            assertFalse("Book expected to be removed from " + storage.getClass(), storage.contains(book));
+        }
+    }
+
+    @Test
+    public void testRowKeysCompareRowsSharingAKey() {
+        List<BookEntry> rows = new ArrayList<>();
+        rows.add(new BookEntry("TitleB", new String[] { "AuthorB" }, 4.1f, "ISBNB", 100));
+        rows.add(new BookEntry("TitleC", new String[] { "AuthorC" }, 3.5f, "ISBNC", 200));
+        rows.add(new BookEntry("TitleD", new String[] { "AuthorD" }, 2.5f, "ISBND", 300));
+
+        // every row gets the same key, as if their keys collided
+        RowKeys keys = new RowKeys();
+        for (int row = 0; row < rows.size(); row++) {
+            keys.add(row, 42);
+        }
+        for (int row = 0; row < rows.size(); row++) {
+            assertEquals("Unexpected row found despite colliding keys.", row, keys.find(rows.get(row), 42, rows::get));
+        }
+        assertEquals("Book not held expected not to be found.", -1, keys.find(testLibrary.getBookData().get(0), 42,
+                rows::get));
+
+        keys.remove(0);
+        rows.remove(0);
+        assertEquals("Unexpected row found after removal.", 1, keys.find(rows.get(1), 42, rows::get));
+    }
+
+    /**
+     * Write a book data file whose rows straddle every 64 KiB block
+     * boundary, with one row longer than a block.
+     *
+     * @param path file to write to
+     * @return books of the file in file order
+     * @throws IOException if the file could not be written
+     */
+    private static List<BookEntry> writeRowsAcrossDecodeBlocks(Path path) throws IOException {
+        StringBuilder data = new StringBuilder("title,authors,rating,isbn,num_pages\n");
+        List<BookEntry> books = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            data.append("Title").append(i).append(",Author").append(i % 7).append("-AuthorZ,4.5,ISBN").append(i)
+                    .append(',').append(i + 1).append('\n');
+            books.add(new BookEntry("Title" + i, new String[] { "Author" + (i % 7), "AuthorZ" }, 4.5f, "ISBN" + i,
+                    i + 1));
+            if (i == 2000) {
+                data.append("x".repeat(150_000)).append(",AuthorL,3.0,ISBNL,1\n");
+                books.add(new BookEntry("x".repeat(150_000), new String[] { "AuthorL" }, 3.0f, "ISBNL", 1));
+            }
+        }
+        Files.write(path, data.toString().getBytes());
+        return books;
+    }
 }
@@ -0,0 +1,64 @@
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary canonicalising author names, so that all books by the
+ * same author share a single String instance.
+ *
+ * Lookups may happen concurrently, e.g. while a file is parsed in parallel.
+ */
+public class AuthorDictionary {
+
+    /** Canonical instance for every author name seen so far. */
+    private final Map<String, String> authors;
+
+    /** Create a new and empty dictionary. */
+    public AuthorDictionary() {
+        authors = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the canonical instance of the given author name. The first
+     * instance seen for a name becomes its canonical instance.
+     *
+     * @param author author name
+     * @return canonical instance equal to the given author name
+     * @throws NullPointerException if the given author name is null
+     */
+    public String canonicalise(String author) {
+        Objects.requireNonNull(author, "Given author must not be null.");
+
+        // most names were seen before, so they are looked up without locking first
+        String canonical = authors.get(author);
+        if (canonical == null) {
+            canonical = authors.putIfAbsent(author, author);
+        }
+        return canonical == null ? author : canonical;
+    }
+
+    /**
+     * Canonicalise all given author names in place.
+     *
+     * @param authorArray author names to be canonicalised
+     * @return the given array
+     * @throws NullPointerException if the given array is null
+     */
+    public String[] canonicaliseAll(String[] authorArray) {
+        Objects.requireNonNull(authorArray, "Given authors must not be null.");
+
+        for (int i = 0; i < authorArray.length; i++) {
+            authorArray[i] = canonicalise(authorArray[i]);
+        }
+        return authorArray;
+    }
+
+    /**
+     * Number of distinct author names in the dictionary.
+     *
+     * @return number of distinct author names
+     */
+    public int size() {
+        return authors.size();
+    }
+}
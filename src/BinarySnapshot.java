@@ -0,0 +1,364 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads and writes library snapshots in a compact binary format.
+ *
+ * A snapshot holds a header, a shared author dictionary and one column per
+ * book field: length-prefixed title and ISBN strings, author ids referring to
+ * the dictionary and primitive rating and page columns. Loading a snapshot
+ * requires no text parsing at all.
+ */
+public final class BinarySnapshot { // the final keyword prevents subclassing of this utility class
+
+    /** File ending identifying a snapshot. */
+    public static final String FILE_SUFFIX = ".snapshot";
+
+    /** Marker at the start of every snapshot ("LBS1"). */
+    private static final int MAGIC = 0x4C425331;
+
+    /** Version of the snapshot layout. */
+    private static final int VERSION = 1;
+
+    /** Size of the buffer used for file access. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** Fewest bytes a book takes: the lengths of its title and ISBN, its number of authors, rating and pages. */
+    private static final int MIN_BOOK_BYTES = 5 * Integer.BYTES;
+
+    /** Not to be used. */
+    private BinarySnapshot() {
+        throw new UnsupportedOperationException("This constructor should never be used.");
+    }
+
+    /**
+     * Write the given books to a snapshot file, replacing any existing file.
+     * The snapshot is written to a temporary file in the same directory,
+     * forced to disk and then moved in place of the file, so a crash keeps
+     * either the old or the new snapshot intact. The books are visited once,
+     * collecting all columns, as visiting a book may decode it.
+     *
+     * @param books books to be written
+     * @param fileName file path of the snapshot
+     * @throws IOException if the snapshot could not be written
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public static void write(List<BookEntry> books, Path fileName) throws IOException {
+        Objects.requireNonNull(books, "Given books must not be null.");
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+
+        // assigns ids to all distinct authors while collecting the columns, as the dictionary precedes the rows
+        int count = books.size();
+        String[] titles = new String[count];
+        String[] isbns = new String[count];
+        int[] authorCounts = new int[count];
+        int[] authorIdColumn = new int[count];
+        int authorIdCount = 0;
+        float[] ratings = new float[count];
+        int[] pages = new int[count];
+        Map<String, Integer> authorIds = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int row = 0;
+        for (BookEntry book : books) {
+            titles[row] = book.getTitle();
+            isbns[row] = book.getISBN();
+            authorCounts[row] = book.getAuthorCount();
+            for (int i = 0; i < authorCounts[row]; i++) {
+                String author = book.getAuthor(i);
+                Integer id = authorIds.get(author);
+                if (id == null) {
+                    id = dictionary.size();
+                    authorIds.put(author, id);
+                    dictionary.add(author);
+                }
+                if (authorIdCount == authorIdColumn.length) {
+                    authorIdColumn = Arrays.copyOf(authorIdColumn, authorIdCount * 2 + 1);
+                }
+                authorIdColumn[authorIdCount++] = id;
+            }
+            ratings[row] = book.getRating();
+            pages[row] = book.getPages();
+            row++;
+        }
+
+        Path temporary = Paths.get(fileName + ".tmp");
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            try {
+                Output out = new Output(channel);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(count);
+
+                out.writeInt(dictionary.size());
+                for (String author : dictionary) {
+                    out.writeString(author);
+                }
+                for (String title : titles) {
+                    out.writeString(title);
+                }
+                for (String isbn : isbns) {
+                    out.writeString(isbn);
+                }
+                int authorId = 0;
+                for (int authorCount : authorCounts) {
+                    out.writeInt(authorCount);
+                    for (int i = 0; i < authorCount; i++) {
+                        out.writeInt(authorIdColumn[authorId++]);
+                    }
+                }
+                for (float rating : ratings) {
+                    out.writeFloat(rating);
+                }
+                for (int pageCount : pages) {
+                    out.writeInt(pageCount);
+                }
+                out.flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+            Files.move(temporary, fileName, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // an incomplete temporary file is never read, so it is removed
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Read all books from a snapshot file. Author names are shared
+     * through the given dictionary. Counts, lengths and author ids are
+     * checked against the size of the file and the dictionary before they
+     * are used, so a damaged file fails with an IOException.
+     *
+     * @param fileName file path of the snapshot
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @return books in the order they were written
+     * @throws IOException if the snapshot could not be read or is not a valid snapshot
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public static List<BookEntry> read(Path fileName, AuthorDictionary authorDictionary) throws IOException {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        Objects.requireNonNull(authorDictionary, "Given author dictionary must not be null.");
+
+        try (FileChannel channel = FileChannel.open(fileName, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a supported library snapshot: " + fileName);
+            }
+            int count = readCount(in, MIN_BOOK_BYTES, "number of books");
+
+            String[] dictionary = new String[readCount(in, Integer.BYTES, "number of authors")];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = authorDictionary.canonicalise(in.readString());
+            }
+
+            String[] titles = new String[count];
+            for (int i = 0; i < count; i++) {
+                titles[i] = in.readString();
+            }
+            String[] isbns = new String[count];
+            for (int i = 0; i < count; i++) {
+                isbns[i] = in.readString();
+            }
+            String[][] authors = new String[count][];
+            for (int i = 0; i < count; i++) {
+                authors[i] = new String[readCount(in, Integer.BYTES, "number of authors of a book")];
+                for (int j = 0; j < authors[i].length; j++) {
+                    int id = in.readInt();
+                    if (id < 0 || id >= dictionary.length) {
+                        throw new IOException("Library snapshot holds an invalid author id: " + id);
+                    }
+                    authors[i][j] = dictionary[id];
+                }
+            }
+            float[] ratings = new float[count];
+            for (int i = 0; i < count; i++) {
+                ratings[i] = in.readFloat();
+            }
+
+            List<BookEntry> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                try {
+                    books.add(new BookEntry(titles[i], authors[i], ratings[i], isbns[i], in.readInt()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Library snapshot holds invalid book data: " + e.getMessage(), e);
+                }
+            }
+            return books;
+        }
+    }
+
+    /**
+     * Read a count of items and check that the rest of the file can hold
+     * that many items.
+     *
+     * @param in reader of the snapshot
+     * @param itemBytes fewest bytes an item takes
+     * @param description description of the count for the error message
+     * @return number of items
+     * @throws IOException if the count could not be read or is invalid
+     */
+    private static int readCount(Input in, int itemBytes, String description) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || (long) count * itemBytes > in.remaining()) {
+            throw new IOException("Library snapshot holds an invalid " + description + ": " + count);
+        }
+        return count;
+    }
+
+    /** Buffered writer of primitive values to a file channel. */
+    private static class Output {
+
+        /** Channel the values are written to. */
+        private final FileChannel channel;
+
+        /** Buffer holding values not yet written. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Create a writer for the given channel.
+         *
+         * @param channel channel the values are written to
+         */
+        Output(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        /** Write a single int. */
+        void writeInt(int value) throws IOException {
+            ensureSpace(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        /** Write a single float. */
+        void writeFloat(float value) throws IOException {
+            ensureSpace(Float.BYTES);
+            buffer.putFloat(value);
+        }
+
+        /** Write a String as its UTF-8 byte length followed by the bytes. */
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+
+            int written = 0;
+            while (written < bytes.length) {
+                ensureSpace(1);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        /** Write all buffered values to the channel. */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /** Flush the buffer if it cannot take the given number of bytes. */
+        private void ensureSpace(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    /** Buffered reader of primitive values from a file channel. */
+    private static class Input {
+
+        /** Channel the values are read from. */
+        private final FileChannel channel;
+
+        /** Buffer holding values read but not yet consumed. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Create a reader for the given channel.
+         *
+         * @param channel channel the values are read from
+         */
+        Input(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+        }
+
+        /** Read a single int. */
+        int readInt() throws IOException {
+            ensureAvailable(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        /** Read a single float. */
+        float readFloat() throws IOException {
+            ensureAvailable(Float.BYTES);
+            return buffer.getFloat();
+        }
+
+        /** Read a String written by Output.writeString. */
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Library snapshot holds an invalid string length: " + length);
+            }
+            if (length <= buffer.capacity()) {
+                ensureAvailable(length);
+                String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return value;
+            }
+
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                ensureAvailable(1);
+                int chunk = Math.min(buffer.remaining(), length - read);
+                buffer.get(bytes, read, chunk);
+                read += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /** Number of bytes of the file not yet consumed. */
+        long remaining() throws IOException {
+            return channel.size() - channel.position() + buffer.remaining();
+        }
+
+        /** Refill the buffer until it holds at least the given number of bytes. */
+        private void ensureAvailable(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) == -1) {
+                    throw new EOFException("Library snapshot ends unexpectedly.");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
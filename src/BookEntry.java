@@ -1,6 +1,10 @@
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Immutable class encapsulating data for a single book entry.
@@ -22,6 +26,18 @@ public class BookEntry {
     /** Immutable instance field for page number. */
     private int pages;
 
+    /**
+     * Long form returned by toString or null if it was not requested yet.
+     * Threads racing on first use may each render it, one of which is kept.
+     */
+    private String longForm;
+
+    /** Initial capacity of the builder a long form is rendered into. */
+    private static final int RENDER_CAPACITY = 128;
+
+    /** Largest rating appendRating formats by hand, far above any valid rating. */
+    private static final float MAX_FAST_RATING = 1e9f;
+
     /**
      * Create the book entry constructor which initialises parameters while
      * making sure arguments are valid.
@@ -89,6 +105,64 @@ public class BookEntry {
         return authors.clone();
     }
 
+    /**
+     * getter for the number of authors, which copies nothing
+     *
+     * @return number of authors of the book
+     */
+    public int getAuthorCount() {
+        return authors.length;
+    }
+
+    /**
+     * getter for a single author, which copies nothing
+     *
+     * @param index position of the author, starting at 0
+     * @return author at the given position
+     * @throws IndexOutOfBoundsException if there is no author at the given position
+     */
+    public String getAuthor(int index) {
+        return authors[index];
+    }
+
+    /**
+     * Get a read-only view of the authors. Unlike getAuthors, the authors
+     * are not copied, and the view cannot be used to change them.
+     *
+     * @return unmodifiable list of the authors of the book
+     */
+    public List<String> getAuthorList() {
+        return Collections.unmodifiableList(Arrays.asList(authors));
+    }
+
+    /**
+     * Pass every author to the given action without copying the authors.
+     *
+     * @param action action to be run for each author in order
+     * @throws NullPointerException if the given action is null
+     */
+    public void forEachAuthor(Consumer<? super String> action) {
+        Objects.requireNonNull(action, "Given action must not be null.");
+        for (String author : authors) {
+            action.accept(author);
+        }
+    }
+
+    /**
+     * Is the given author one of the authors of the book?
+     *
+     * @param author author to look for
+     * @return true if the book lists the author
+     */
+    public boolean hasAuthor(String author) {
+        for (String listed : authors) {
+            if (listed.equals(author)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * getter for rating
      *
@@ -118,20 +192,82 @@ public class BookEntry {
 
     /**
      * Override the toString method to output in the required format.
+     * The long form is rendered on first use and kept with the entry, so
+     * it lives no longer than the entry itself.
      */
 @Override
     public String toString() {
-        final String padding = "\n";
-        StringBuilder bld = new StringBuilder();
+        String rendered = longForm;
+        if (rendered == null) {
+            rendered = renderLongForm(new StringBuilder(RENDER_CAPACITY)).toString();
+            longForm = rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * Append the long form of the book, as returned by toString, to the
+     * given builder without creating any intermediate strings. A long form
+     * kept by toString is appended as it is, otherwise it is rendered into
+     * the builder and not kept.
+     *
+     * @param bld builder the long form is appended to
+     * @return the given builder
+     * @throws NullPointerException if the given builder is null
+     */
+    public StringBuilder appendLongForm(StringBuilder bld) {
+        String rendered = longForm;
+        return rendered != null ? bld.append(rendered) : renderLongForm(bld);
+    }
+
+    /**
+     * Render the long form of the book into the given builder.
+     *
+     * @param bld builder the long form is appended to
+     * @return the given builder
+     */
+    private StringBuilder renderLongForm(StringBuilder bld) {
+        final char padding = '\n';
 
         bld.append(title);
-        bld.append(padding).append("by ").append(Arrays.toString(authors).replace("[","").replace("]",""));
-        bld.append(padding).append("Rating: ").append(String.format("%.2f",rating));
+        bld.append(padding).append("by ");
+        for (int i = 0; i < authors.length; i++) {
+            if (i > 0) {
+                bld.append(", ");
+            }
+            bld.append(authors[i]);
+        }
+        bld.append(padding).append("Rating: ");
+        appendRating(bld, rating);
         bld.append(padding).append("ISBN: ").append(ISBN);
         bld.append(padding).append(pages).append(" pages");
 
-        return bld.toString();
+        return bld;
+    }
+
+    /**
+     * Append a rating with two decimals, rounded half up as String.format
+     * would, but without parsing a format string. The point is always used
+     * as decimal separator.
+     *
+     * @param bld builder the rating is appended to
+     * @param rating rating to be appended
+     */
+    static void appendRating(StringBuilder bld, float rating) {
+        // the sign bit excludes -0.0, and the comparison excludes NaN and values too large for a long
+        if (Float.floatToRawIntBits(rating) < 0 || !(rating <= MAX_FAST_RATING)) {
+            bld.append(String.format(Locale.ROOT, "%.2f", rating));
+            return;
+        }
 
+        // a float times 100 needs at most 31 significant bits, so the product is exact as a double
+        long hundredths = (long) Math.floor((double) rating * 100 + 0.5);
+        long fraction = hundredths % 100;
+        bld.append(hundredths / 100).append('.');
+        if (fraction < 10) {
+            bld.append('0');
+        }
+        bld.append(fraction);
     }
 
     /**
@@ -155,18 +291,26 @@ public class BookEntry {
         }
         BookEntry bookEntry = (BookEntry) o;
 
-        return Objects.equals(title, bookEntry.title) && Objects.equals(authors, bookEntry.authors) && rating == bookEntry.rating && Objects.equals(ISBN, bookEntry.ISBN) && pages == bookEntry.pages;
+        // authors are compared by value, so equal books parsed from different rows are found to be equal
+        return Objects.equals(title, bookEntry.title) && Arrays.equals(authors, bookEntry.authors) && Float.compare(rating, bookEntry.rating) == 0 && Objects.equals(ISBN, bookEntry.ISBN) && pages == bookEntry.pages;
 
     }
 
     /**
      * Override hashcode method to hash the fields of the object.
+     * Consistent with equals, the authors are hashed by value.
      *
      * @return hashed object
      */
 @Override
     public int hashCode(){
-        return Objects.hash(title, authors, rating, ISBN, pages);
+        // combined by hand, as Objects.hash would box the primitive fields on every call
+        int result = Objects.hashCode(title);
+        result = 31 * result + Arrays.hashCode(authors);
+        result = 31 * result + Float.hashCode(rating);
+        result = 31 * result + Objects.hashCode(ISBN);
+        result = 31 * result + pages;
+        return result;
 }
 
 
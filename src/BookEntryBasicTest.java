@@ -1,8 +1,13 @@
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -46,6 +51,30 @@ public class BookEntryBasicTest extends BookEntryTest {
         assertArrayEquals("Unexpected " + fieldName + " returned by getter.", expected, actual);
     }
 
+    @Test
+    public void testGetAuthorsWithoutCopy() {
+        String fieldName = AUTHORS_FIELD_NAME;
+        String[] expected = { "Test Author A", "Test Author B" };
+        FieldTestUtils.setPrivateField(testBook, testBook.getClass(), fieldName, expected);
+
+        assertEquals("Unexpected author count returned by getter.", 2, testBook.getAuthorCount());
+        assertEquals("Unexpected author returned by getter.", "Test Author B", testBook.getAuthor(1));
+        assertEquals("Unexpected author list returned by getter.", Arrays.asList(expected), testBook.getAuthorList());
+        assertTrue("Listed author expected to be found.", testBook.hasAuthor("Test Author A"));
+        assertFalse("Unlisted author not expected to be found.", testBook.hasAuthor("Test Author C"));
+
+        List<String> visited = new ArrayList<>();
+        testBook.forEachAuthor(visited::add);
+        assertEquals("Unexpected authors passed to action.", Arrays.asList(expected), visited);
+
+        try {
+            testBook.getAuthorList().set(0, "Changed Author");
+        } catch (UnsupportedOperationException e) {
+            // expected, as book entries are immutable
+        }
+        assertEquals("Authors must not be changed through the author list.", "Test Author A", testBook.getAuthor(0));
+    }
+
     @Test
     public void testGetRating() {
         String fieldName = RATING_FIELD_NAME;
@@ -144,4 +173,26 @@ public class BookEntryBasicTest extends BookEntryTest {
         assertEquals("ToString result not as expected.", expectedResult.replaceAll("\r", "").trim(),
                 actualResult.replaceAll("\r", "").trim());
     }
+
+    @Test
+    public void testToStringRoundsRatingHalfUp() {
+        BookEntry book = new BookEntry(DEFAULT_TITLE, new String[] { "AuthorA", "AuthorB" }, 0.125f, DEFAULT_ISBN,
+                DEFAULT_PAGES);
+        String expectedResult = DEFAULT_TITLE + "\nby AuthorA, AuthorB\nRating: 0.13\nISBN: " + DEFAULT_ISBN + "\n"
+                + DEFAULT_PAGES + " pages";
+        assertEquals("ToString result not as expected.", expectedResult, book.toString());
+    }
+
+    @Test
+    public void testLongFormRenderedOnce() {
+        BookEntry book = new BookEntry(DEFAULT_TITLE, DEFAULT_AUTHORS, DEFAULT_RATING, DEFAULT_ISBN, DEFAULT_PAGES);
+
+        assertEquals("Appended long form not as expected.", DEFAULT_TOSTRING_RESULT,
+                book.appendLongForm(new StringBuilder()).toString());
+        String longForm = book.toString();
+        assertEquals("Long form not as expected.", DEFAULT_TOSTRING_RESULT, longForm);
+        assertSame("Long form expected to be rendered once per entry.", longForm, book.toString());
+        assertEquals("Appended long form expected to match the kept one.", DEFAULT_TOSTRING_RESULT,
+                book.appendLongForm(new StringBuilder()).toString());
+    }
 }
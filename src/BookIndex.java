@@ -0,0 +1,586 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Hash index from keys derived from each book, e.g. its ISBN or its authors,
+ * to the positions of all books holding that key in the book data.
+ *
+ * Positions are held in ascending order per key. A key held by a single
+ * book, which is the common case for e.g. ISBNs, keeps its position in the
+ * table itself, so nothing is allocated per key. Keys are held in an open
+ * addressing table probed linearly, so there is no entry object per key
+ * either. Positions change when the book data is compacted, see remap.
+ *
+ * The table is split into chunks of slots, so a snapshot of the index
+ * shares the chunks like ChunkedBookList does. The index copies a chunk
+ * the first time it changes it after a snapshot was taken, so snapshots
+ * never change and can be read by any number of threads while the index
+ * changes.
+ */
+public class BookIndex {
+
+    /** Number of slots of a new table. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of bits of a slot addressing it within its chunk. */
+    private static final int CHUNK_BITS = 10;
+
+    /** Mask extracting the slot within its chunk from a slot. */
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /** Derives the keys of a book. */
+    private final KeyExtractor keysExtractor;
+
+    /** True if the index is a snapshot, which never changes. */
+    private final boolean frozen;
+
+    /** Key of each slot or null if the slot is free, by chunk. */
+    private String[][] keys;
+
+    /** Position of the single book holding the key of each slot, by chunk. */
+    private int[][] singleRows;
+
+    /** Positions of all books holding the key of each slot or null if a single book holds it, by chunk. */
+    private Postings[][] sharedRows;
+
+    /** True for each chunk owned by the index, false if a snapshot may refer to it. */
+    private boolean[] owned;
+
+    /** Number of slots, a power of two. */
+    private int capacity;
+
+    /** Number of keys held. */
+    private int keyCount;
+
+    /**
+     * Create a new and empty index.
+     *
+     * @param keysExtractor extractor deriving the keys of a book
+     */
+    private BookIndex(KeyExtractor keysExtractor) {
+        this.keysExtractor = keysExtractor;
+        this.frozen = false;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a snapshot of the given index sharing its chunks.
+     *
+     * @param index index to take the snapshot of
+     */
+    private BookIndex(BookIndex index) {
+        this.keysExtractor = index.keysExtractor;
+        this.frozen = true;
+        this.keys = index.keys.clone();
+        this.singleRows = index.singleRows.clone();
+        this.sharedRows = index.sharedRows.clone();
+        this.owned = new boolean[index.owned.length];
+        this.capacity = index.capacity;
+        this.keyCount = index.keyCount;
+    }
+
+    /**
+     * Create an index holding the given books under a single key each.
+     *
+     * @param keyExtractor function deriving the key of a book
+     * @param books books to be indexed at their positions in the list
+     * @return index holding all given books
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public static BookIndex byKey(Function<BookEntry, String> keyExtractor, List<BookEntry> books) {
+        Objects.requireNonNull(keyExtractor, "Given key extractor must not be null.");
+        return build(new KeyExtractor() {
+            @Override
+            public int keyCount(BookEntry book) {
+                return 1;
+            }
+
+            @Override
+            public String key(BookEntry book, int position) {
+                return keyExtractor.apply(book);
+            }
+        }, books);
+    }
+
+    /**
+     * Create an index holding the given books under each of their authors.
+     *
+     * @param books books to be indexed at their positions in the list
+     * @return index holding all given books
+     * @throws NullPointerException if the given list is null
+     */
+    public static BookIndex byAuthors(List<BookEntry> books) {
+        return build(new KeyExtractor() {
+            @Override
+            public int keyCount(BookEntry book) {
+                return book.getAuthorCount();
+            }
+
+            @Override
+            public String key(BookEntry book, int position) {
+                return book.getAuthor(position);
+            }
+        }, books);
+    }
+
+    /**
+     * Create an index holding the given books under the keys derived by the given extractor.
+     *
+     * @param keysExtractor extractor deriving the keys of a book
+     * @param books books to be indexed at their positions in the list
+     * @return index holding all given books
+     * @throws NullPointerException if the given list is null
+     */
+    private static BookIndex build(KeyExtractor keysExtractor, List<BookEntry> books) {
+        Objects.requireNonNull(books, "Given books must not be null.");
+
+        BookIndex index = new BookIndex(keysExtractor);
+        int position = 0;
+        for (BookEntry book : books) {
+            index.add(book, position++);
+        }
+        return index;
+    }
+
+    /**
+     * Add the given book under all its keys. Books are added in the order of
+     * their positions, so the given position follows all positions held.
+     *
+     * @param book book to be indexed
+     * @param position position of the book in the book data
+     * @throws NullPointerException if the given book is null
+     * @throws IllegalStateException if this index is a snapshot
+     */
+    public void add(BookEntry book, int position) {
+        Objects.requireNonNull(book, "Given book must not be null.");
+        checkNotFrozen();
+        for (int i = 0; i < keysExtractor.keyCount(book); i++) {
+            String key = keysExtractor.key(book, i);
+            if (!isRepeatedKey(book, key, i)) {
+                add(key, position);
+            }
+        }
+    }
+
+    /**
+     * Remove the books at the given positions from all their keys. Each
+     * affected key is visited once, however many of its books are removed.
+     *
+     * @param books book data the positions refer to
+     * @param positions positions of the books to be removed
+     * @throws NullPointerException if any of the given parameters are null
+     * @throws IllegalStateException if this index is a snapshot
+     */
+    public void removeAll(List<BookEntry> books, RowSet positions) {
+        Objects.requireNonNull(books, "Given books must not be null.");
+        Objects.requireNonNull(positions, "Given positions must not be null.");
+        checkNotFrozen();
+
+        Set<String> affected = new HashSet<>();
+        positions.forEach(position -> {
+            BookEntry book = books.get(position);
+            for (int i = 0; i < keysExtractor.keyCount(book); i++) {
+                affected.add(keysExtractor.key(book, i));
+            }
+        });
+
+        for (String key : affected) {
+            int slot = find(key);
+            if (slot < 0) {
+                continue;
+            }
+
+            Postings shared = sharedAt(slot);
+            if (shared == null) {
+                if (positions.contains(singleAt(slot))) {
+                    removeSlot(slot);
+                }
+            } else {
+                Postings kept = shared.without(positions);
+                if (kept.size == 0) {
+                    removeSlot(slot);
+                } else if (kept.size == 1) {
+                    put(slot, key, kept.rows[0], null);
+                } else {
+                    put(slot, key, 0, kept);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the positions of all books indexed under the given key. The
+     * returned set is not affected by later changes of the index.
+     *
+     * @param key key to look for
+     * @return ascending positions of the books holding the key, an empty set if there are none
+     * @throws NullPointerException if the given key is null
+     */
+    public RowSet get(String key) {
+        Objects.requireNonNull(key, "Given key must not be null.");
+        int slot = find(key);
+
+        if (slot < 0) {
+            return RowSet.empty();
+        }
+        Postings shared = sharedAt(slot);
+        return shared == null ? RowSet.of(singleAt(slot)) : RowSet.sharing(shared.rows, 0, shared.size);
+    }
+
+    /**
+     * Is any book indexed under the given key?
+     *
+     * @param key key to look for
+     * @return true if the key is held
+     * @throws NullPointerException if the given key is null
+     */
+    public boolean containsKey(String key) {
+        Objects.requireNonNull(key, "Given key must not be null.");
+        return find(key) >= 0;
+    }
+
+    /**
+     * Get all distinct keys of the indexed books.
+     *
+     * @return keys in no particular order
+     */
+    public List<String> keys() {
+        List<String> held = new ArrayList<>(keyCount);
+        for (String[] chunk : keys) {
+            for (String key : chunk) {
+                if (key != null) {
+                    held.add(key);
+                }
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Take a snapshot of this index. Only the references to the chunks of
+     * the table are copied, and this index copies a chunk before it changes
+     * it, so the snapshot is not affected by later changes of this index.
+     *
+     * @return unmodifiable snapshot holding the current keys and positions
+     */
+    public BookIndex snapshot() {
+        Arrays.fill(owned, false);
+        return new BookIndex(this);
+    }
+
+    /**
+     * Move all positions after the book data was compacted.
+     *
+     * @param newPositions new position of each book by its old position
+     * @throws NullPointerException if the given array is null
+     * @throws IllegalStateException if this index is a snapshot
+     */
+    public void remap(int[] newPositions) {
+        Objects.requireNonNull(newPositions, "Given positions must not be null.");
+        checkNotFrozen();
+
+        for (int slot = 0; slot < capacity; slot++) {
+            String key = keyAt(slot);
+            if (key == null) {
+                continue;
+            }
+
+            Postings shared = sharedAt(slot);
+            if (shared == null) {
+                put(slot, key, newPositions[singleAt(slot)], null);
+            } else {
+                // a new array, as snapshots and earlier results may still share the old one
+                int[] moved = new int[shared.size];
+                for (int i = 0; i < moved.length; i++) {
+                    moved[i] = newPositions[shared.rows[i]];
+                }
+                put(slot, key, 0, new Postings(moved, moved.length));
+            }
+        }
+    }
+
+    /**
+     * Add a single position under a key.
+     *
+     * @param key key the book is held under
+     * @param position position of the book
+     */
+    private void add(String key, int position) {
+        int slot = find(key);
+        if (slot >= 0) {
+            Postings shared = sharedAt(slot);
+            put(slot, key, 0, shared == null ? Postings.of(singleAt(slot), position) : shared.append(position));
+            return;
+        }
+
+        if ((keyCount + 1) * 3L > capacity * 2L) {
+            resize();
+        }
+        slot = home(key);
+        while (keyAt(slot) != null) {
+            slot = (slot + 1) & (capacity - 1);
+        }
+        put(slot, key, position, null);
+        keyCount++;
+    }
+
+    /**
+     * Find the slot holding the given key.
+     *
+     * @param key key to look for
+     * @return slot of the key or -1 if the key is not held
+     */
+    private int find(String key) {
+        int slot = home(key);
+        for (String held = keyAt(slot); held != null; held = keyAt(slot)) {
+            if (held.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Free the given slot, moving later keys of the same probe sequence
+     * back, so every key remains reachable from its home slot.
+     *
+     * @param slot slot of a key to be removed
+     */
+    private void removeSlot(int slot) {
+        int mask = capacity - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keyAt(next) != null; next = (next + 1) & mask) {
+            // a key may only move back to a slot it passed on its way from its home slot
+            if (((next - home(keyAt(next))) & mask) >= ((next - hole) & mask)) {
+                put(hole, keyAt(next), singleAt(next), sharedAt(next));
+                hole = next;
+            }
+        }
+        put(hole, null, 0, null);
+        keyCount--;
+    }
+
+    /**
+     * Get the slot the probe sequence of the given key starts at.
+     *
+     * @param key key to look for
+     * @return home slot of the key
+     */
+    private int home(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+
+    /** Double the number of slots, placing every key again. */
+    private void resize() {
+        String[][] oldKeys = keys;
+        int[][] oldSingleRows = singleRows;
+        Postings[][] oldSharedRows = sharedRows;
+        allocate(capacity * 2);
+
+        for (int chunk = 0; chunk < oldKeys.length; chunk++) {
+            for (int old = 0; old < oldKeys[chunk].length; old++) {
+                String key = oldKeys[chunk][old];
+                if (key != null) {
+                    int slot = home(key);
+                    while (keyAt(slot) != null) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    put(slot, key, oldSingleRows[chunk][old], oldSharedRows[chunk][old]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the table by an empty one.
+     *
+     * @param newCapacity number of slots, a power of two
+     */
+    private void allocate(int newCapacity) {
+        int chunkSize = Math.min(newCapacity, CHUNK_MASK + 1);
+        int chunkCount = newCapacity / chunkSize;
+        keys = new String[chunkCount][chunkSize];
+        singleRows = new int[chunkCount][chunkSize];
+        sharedRows = new Postings[chunkCount][chunkSize];
+        owned = new boolean[chunkCount];
+        Arrays.fill(owned, true);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Get the key held in the given slot.
+     *
+     * @param slot slot of the table
+     * @return key of the slot or null if the slot is free
+     */
+    private String keyAt(int slot) {
+        return keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+    }
+
+    /**
+     * Get the position of the single book holding the key of the given slot.
+     *
+     * @param slot slot of a key held by a single book
+     * @return position of the book
+     */
+    private int singleAt(int slot) {
+        return singleRows[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+    }
+
+    /**
+     * Get the positions of the books holding the key of the given slot.
+     *
+     * @param slot slot of a key
+     * @return positions of the books or null if a single book holds the key
+     */
+    private Postings sharedAt(int slot) {
+        return sharedRows[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+    }
+
+    /**
+     * Fill the given slot, copying its chunk first if a snapshot may refer to it.
+     *
+     * @param slot slot of the table
+     * @param key key held in the slot or null to free it
+     * @param single position of the single book holding the key
+     * @param shared positions of all books holding the key or null if a single book holds it
+     */
+    private void put(int slot, String key, int single, Postings shared) {
+        int chunk = slot >>> CHUNK_BITS;
+        if (!owned[chunk]) {
+            keys[chunk] = keys[chunk].clone();
+            singleRows[chunk] = singleRows[chunk].clone();
+            sharedRows[chunk] = sharedRows[chunk].clone();
+            owned[chunk] = true;
+        }
+        keys[chunk][slot & CHUNK_MASK] = key;
+        singleRows[chunk][slot & CHUNK_MASK] = single;
+        sharedRows[chunk][slot & CHUNK_MASK] = shared;
+    }
+
+    /**
+     * Make sure this index is not a snapshot, which must never change.
+     *
+     * @throws IllegalStateException if this index is a snapshot
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("A snapshot of an index cannot be changed.");
+        }
+    }
+
+    /**
+     * Does the key at the given position occur earlier in the keys of the same book?
+     *
+     * @param book book the keys are derived from
+     * @param key key at the given position
+     * @param position position of the key to check
+     * @return true if the key was seen already
+     */
+    private boolean isRepeatedKey(BookEntry book, String key, int position) {
+        for (int i = 0; i < position; i++) {
+            if (keysExtractor.key(book, i).equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ascending positions of the books sharing a key. Postings never change,
+     * so snapshots and sets of rows returned by get can share them. Appending
+     * writes past the end of the array only, which no earlier postings
+     * reach, so it reuses the array as long as it has room.
+     */
+    private static final class Postings {
+
+        /** Positions, of which the first size are held. */
+        private final int[] rows;
+
+        /** Number of positions held. */
+        private final int size;
+
+        /**
+         * Create postings holding the first positions of the given array.
+         *
+         * @param rows ascending positions
+         * @param size number of positions held
+         */
+        Postings(int[] rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+
+        /**
+         * Create postings of two positions.
+         *
+         * @param first lower position
+         * @param second higher position
+         * @return postings holding both positions
+         */
+        static Postings of(int first, int second) {
+            int[] rows = new int[4];
+            rows[0] = first;
+            rows[1] = second;
+            return new Postings(rows, 2);
+        }
+
+        /**
+         * Get postings holding an additional position. Must only be called
+         * on the latest postings of their array, as held by the index.
+         *
+         * @param position position following all positions held
+         * @return postings holding all positions held and the given one
+         */
+        Postings append(int position) {
+            int[] grown = size < rows.length ? rows : Arrays.copyOf(rows, size + (size >> 1));
+            grown[size] = position;
+            return new Postings(grown, size + 1);
+        }
+
+        /**
+         * Get postings without the given positions.
+         *
+         * @param removed positions to be left out
+         * @return new postings of all other positions
+         */
+        Postings without(RowSet removed) {
+            int[] kept = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.contains(rows[i])) {
+                    kept[count++] = rows[i];
+                }
+            }
+            return new Postings(kept, count);
+        }
+    }
+
+    /** Derives the keys of a book one by one, so no array or list of keys is created per book. */
+    private interface KeyExtractor {
+
+        /**
+         * Number of keys of a book.
+         *
+         * @param book book the keys are derived from
+         * @return number of keys
+         */
+        int keyCount(BookEntry book);
+
+        /**
+         * Derive a single key of a book.
+         *
+         * @param book book the key is derived from
+         * @param position position of the key, below keyCount
+         * @return key at the given position
+         */
+        String key(BookEntry book, int position);
+    }
+}
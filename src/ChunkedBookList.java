@@ -0,0 +1,232 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * List of book entries held in memory in fixed-size chunks, so a snapshot
+ * of the list can share the chunks instead of copying every entry. Taking
+ * a snapshot copies the references to the chunks only. The list copies a
+ * chunk the first time it changes it after a snapshot was taken, so each
+ * write copies the few chunks it touches and snapshots never change.
+ *
+ * Entries are held in list order across the chunks. Appending fills the
+ * last chunk, inserting or removing anywhere else moves all later entries
+ * like ArrayList does.
+ *
+ * This class is not thread-safe, but its snapshots can be read by any
+ * number of threads while the list changes.
+ */
+public class ChunkedBookList extends AbstractList<BookEntry> implements RandomAccess {
+
+    /** Number of bits of a position addressing the entry within its chunk. */
+    private static final int CHUNK_BITS = 10;
+
+    /** Number of entries per chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** Mask extracting the position within its chunk from a position. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** Chunks holding the entries, all but the last one full. */
+    private BookEntry[][] chunks;
+
+    /** True for each chunk owned by the list, false if a snapshot may refer to it. */
+    private boolean[] owned;
+
+    /** Number of chunks in use. */
+    private int chunkCount;
+
+    /** Number of entries. */
+    private int size;
+
+    /** Create a new and empty list. */
+    public ChunkedBookList() {
+        chunks = new BookEntry[4][];
+        owned = new boolean[4];
+    }
+
+    @Override
+    public BookEntry get(int index) {
+        Objects.checkIndex(index, size);
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public BookEntry set(int index, BookEntry entry) {
+        Objects.checkIndex(index, size);
+        BookEntry[] chunk = writableChunk(index >>> CHUNK_BITS);
+        BookEntry previous = chunk[index & CHUNK_MASK];
+        chunk[index & CHUNK_MASK] = entry;
+        return previous;
+    }
+
+    @Override
+    public boolean add(BookEntry entry) {
+        if ((size & CHUNK_MASK) == 0) {
+            appendChunk();
+        }
+        writableChunk(size >>> CHUNK_BITS)[size & CHUNK_MASK] = entry;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, BookEntry entry) {
+        Objects.checkIndex(index, size + 1);
+        if (index == size) {
+            add(entry);
+            return;
+        }
+
+        add(get(size - 1));
+        for (int i = size - 2; i > index; i--) {
+            set(i, get(i - 1));
+        }
+        set(index, entry);
+    }
+
+    @Override
+    public BookEntry remove(int index) {
+        BookEntry removed = get(index);
+        for (int i = index; i < size - 1; i++) {
+            set(i, get(i + 1));
+        }
+        truncate(size - 1);
+        return removed;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super BookEntry> filter) {
+        Objects.requireNonNull(filter, "Given filter must not be null.");
+
+        // moves the entries kept to the front in a single pass, which only copies chunks from the first removal on
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            BookEntry entry = get(i);
+            if (!filter.test(entry)) {
+                if (kept != i) {
+                    set(kept, entry);
+                }
+                kept++;
+            }
+        }
+        boolean removed = kept < size;
+        truncate(kept);
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        chunks = new BookEntry[4][];
+        owned = new boolean[4];
+        chunkCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take an unmodifiable snapshot of the entries of the list. Only the
+     * references to the chunks are copied, and the list copies a chunk
+     * before it changes it, so the snapshot is not affected by later changes
+     * of the list.
+     *
+     * @return snapshot of the current entries
+     */
+    public List<BookEntry> snapshot() {
+        Arrays.fill(owned, 0, chunkCount, false);
+        return new Snapshot(Arrays.copyOf(chunks, chunkCount), size);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        int removed = toIndex - fromIndex;
+        for (int i = fromIndex; i < size - removed; i++) {
+            set(i, get(i + removed));
+        }
+        truncate(size - removed);
+    }
+
+    /**
+     * Drop all entries from the given position on.
+     *
+     * @param newSize number of entries kept
+     */
+    private void truncate(int newSize) {
+        int newChunkCount = (newSize + CHUNK_MASK) >>> CHUNK_BITS;
+        Arrays.fill(chunks, newChunkCount, chunkCount, null);
+        chunkCount = newChunkCount;
+
+        // clears the rest of the last chunk, so dropped entries are not kept alive
+        if ((newSize & CHUNK_MASK) != 0) {
+            Arrays.fill(writableChunk(chunkCount - 1), newSize & CHUNK_MASK, CHUNK_SIZE, null);
+        }
+        size = newSize;
+        modCount++;
+    }
+
+    /** Add an empty chunk after the last one. */
+    private void appendChunk() {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            owned = Arrays.copyOf(owned, chunkCount * 2);
+        }
+        chunks[chunkCount] = new BookEntry[CHUNK_SIZE];
+        owned[chunkCount] = true;
+        chunkCount++;
+    }
+
+    /**
+     * Get the given chunk for a change, copying it first if a snapshot may refer to it.
+     *
+     * @param chunk number of the chunk
+     * @return chunk owned by the list
+     */
+    private BookEntry[] writableChunk(int chunk) {
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk] = true;
+        }
+        return chunks[chunk];
+    }
+
+    /** Unmodifiable snapshot of the entries, sharing the chunks of the list. */
+    private static final class Snapshot extends AbstractList<BookEntry> implements RandomAccess {
+
+        /** Chunks holding the entries, which never change. */
+        private final BookEntry[][] chunks;
+
+        /** Number of entries. */
+        private final int size;
+
+        /**
+         * Create a snapshot of the given chunks.
+         *
+         * @param chunks chunks holding the entries
+         * @param size number of entries
+         */
+        Snapshot(BookEntry[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public BookEntry get(int index) {
+            Objects.checkIndex(index, size);
+            return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
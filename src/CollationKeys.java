@@ -0,0 +1,360 @@
+import java.text.Collator;
+import java.text.Normalizer;
+import java.text.ParseException;
+import java.text.RuleBasedCollator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorts strings in the order of the English collator, which compares
+ * letters first and only then their accents and case. The order does not
+ * depend on the default locale of the machine. Latin letters which do not
+ * decompose into a base letter and an accent, e.g. \u00D8 or \u0141, are sorted with
+ * their base letter like accented letters are. The collation key of
+ * each string is computed once and kept as bytes, so sorting again, e.g.
+ * the titles of a later version of the book data, only compares bytes and
+ * computes keys for strings not seen before. Strings which changed little
+ * since they were sorted are merged into their earlier order instead.
+ *
+ * Keys of strings which are no longer sorted are dropped once they make up
+ * more than half of the kept keys.
+ *
+ * This class is thread-safe.
+ */
+public class CollationKeys {
+
+    /** Letters A to Z in collation order. */
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    /** Rules placing letters which do not decompose right after their base letter, differing like an accent. */
+    private static final String BASE_LETTER_RULES = "& D ; \u0111 , \u0110 & H ; \u0127 , \u0126 & I ; \u0131"
+            + " & L ; \u0142 , \u0141 ; \u0140 , \u013F & N ; \u014B , \u014A & O ; \u00F8 , \u00D8"
+            + " & S ; \u017F & T ; \u0167 , \u0166";
+
+    /** Collator all collators of this class are cloned from. */
+    private static final Collator COLLATOR = createCollator();
+
+    /** Collator comparing letters only, used to find the base letter of a letter. Not thread-safe by itself. */
+    private static final Collator LETTER_COLLATOR = createLetterCollator();
+
+    /** Collator computing the keys. Not thread-safe by itself. */
+    private final Collator collator;
+
+    /** Collation key of each string sorted so far. */
+    private final Map<String, byte[]> keys;
+
+    /** Create a new and empty set of keys. */
+    public CollationKeys() {
+        collator = (Collator) COLLATOR.clone();
+        keys = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sort the given strings in collation order. Strings with equal keys
+     * are ordered by String.compareTo, so the order is always the same.
+     * Each distinct string is sorted once and then repeated as often as
+     * it is given, so many books sharing a title do not slow down sorting.
+     *
+     * @param strings strings to be sorted
+     * @return new array of the given strings in collation order
+     * @throws NullPointerException if the given collection or any of its strings are null
+     */
+    public String[] sort(Collection<String> strings) {
+        Objects.requireNonNull(strings, "Given strings must not be null.");
+
+        Map<String, int[]> counts = count(strings);
+        Keyed[] keyed = sortDistinct(counts);
+        if (keys.size() > 2 * keyed.length) {
+            keys.keySet().retainAll(counts.keySet());
+        }
+
+        String[] sorted = new String[strings.size()];
+        int position = 0;
+        for (Keyed entry : keyed) {
+            Arrays.fill(sorted, position, position + entry.count, entry.string);
+            position += entry.count;
+        }
+        return sorted;
+    }
+
+    /**
+     * Derive the collation order of strings which changed since they were
+     * sorted, e.g. the titles of a later version of the book data. Only the
+     * added strings are sorted. Added and removed strings are placed by
+     * binary search and the rest is copied in runs, so keys are only looked
+     * up for few strings besides the changed ones.
+     *
+     * @param sorted strings in the order returned by sort or merge
+     * @param removed strings removed since, each held by sorted as often as given
+     * @param added strings added since
+     * @return new array of the remaining and the added strings in collation order
+     * @throws NullPointerException if any of the given parameters or any of the strings are null
+     * @throws IllegalArgumentException if a removed string is not held by sorted as often as given
+     */
+    public String[] merge(String[] sorted, Collection<String> removed, Collection<String> added) {
+        Objects.requireNonNull(sorted, "Given sorted strings must not be null.");
+        Objects.requireNonNull(removed, "Given removed strings must not be null.");
+        Objects.requireNonNull(added, "Given added strings must not be null.");
+
+        // equal strings are next to each other, so each removed string drops part of a single run
+        int[] dropped = new int[removed.size()];
+        int droppedCount = 0;
+        for (Map.Entry<String, int[]> entry : count(removed).entrySet()) {
+            int start = search(sorted, entry.getKey(), keyOf(entry.getKey()));
+            for (int i = start; i < start + entry.getValue()[0]; i++) {
+                if (i >= sorted.length || !sorted[i].equals(entry.getKey())) {
+                    throw new IllegalArgumentException("Given removed strings must be held by the sorted strings.");
+                }
+                dropped[droppedCount++] = i;
+            }
+        }
+        Arrays.sort(dropped, 0, droppedCount);
+
+        String[] kept = new String[sorted.length - droppedCount];
+        int position = 0;
+        int keptCount = 0;
+        for (int i = 0; i < droppedCount; i++) {
+            System.arraycopy(sorted, position, kept, keptCount, dropped[i] - position);
+            keptCount += dropped[i] - position;
+            position = dropped[i] + 1;
+        }
+        System.arraycopy(sorted, position, kept, keptCount, sorted.length - position);
+
+        String[] merged = new String[kept.length + added.size()];
+        position = 0;
+        int mergedCount = 0;
+        for (Keyed entry : sortDistinct(count(added))) {
+            int insertion = search(kept, entry.string, entry.key);
+            System.arraycopy(kept, position, merged, mergedCount, insertion - position);
+            mergedCount += insertion - position;
+            position = insertion;
+            Arrays.fill(merged, mergedCount, mergedCount + entry.count, entry.string);
+            mergedCount += entry.count;
+        }
+        System.arraycopy(kept, position, merged, mergedCount, kept.length - position);
+        return merged;
+    }
+
+    /**
+     * Is the given string held by the given strings in collation order?
+     *
+     * @param sorted strings in the order returned by sort or merge
+     * @param string string to look for
+     * @return true if the string is held
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public boolean contains(String[] sorted, String string) {
+        Objects.requireNonNull(sorted, "Given sorted strings must not be null.");
+        Objects.requireNonNull(string, "Given string must not be null.");
+
+        int position = search(sorted, string, keyOf(string));
+        return position < sorted.length && sorted[position].equals(string);
+    }
+
+    /**
+     * Get the letter heading the group of the given string when strings
+     * sorted by this class are grouped by their first letter. Letters
+     * belong to the letter A to Z they are sorted with, e.g. \u00C9 to E,
+     * \u00C6 to A, \u00D8 to O or \u00DF to S, so every group is a single
+     * run of sorted strings. Any other first character heads its own group
+     * in upper case.
+     *
+     * @param string non-empty string to get the group of
+     * @return character heading the group of the string
+     * @throws NullPointerException if the given string is null
+     * @throws IndexOutOfBoundsException if the given string is empty
+     */
+    static char groupLetter(String string) {
+        char first = string.charAt(0);
+        if (first > 0x7F) {
+            first = Normalizer.normalize(String.valueOf(first), Normalizer.Form.NFD).charAt(0);
+        }
+        if (first > 0x7F && Character.isLetter(first)
+                && Character.UnicodeScript.of(first) == Character.UnicodeScript.LATIN) {
+            first = baseLetter(first);
+        }
+        return Character.toUpperCase(first);
+    }
+
+    /**
+     * Count how often each distinct string is given.
+     *
+     * @param strings strings to be counted
+     * @return number of occurrences by string
+     * @throws NullPointerException if any of the strings are null
+     */
+    private static Map<String, int[]> count(Collection<String> strings) {
+        Map<String, int[]> counts = new HashMap<>();
+        for (String string : strings) {
+            Objects.requireNonNull(string, "Given strings must not contain null.");
+            counts.computeIfAbsent(string, s -> new int[1])[0]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Pair the given distinct strings with their keys in collation order.
+     *
+     * @param counts number of occurrences by distinct string
+     * @return strings with their keys and counts in collation order
+     */
+    private Keyed[] sortDistinct(Map<String, int[]> counts) {
+        Keyed[] keyed = new Keyed[counts.size()];
+        int count = 0;
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            keyed[count++] = new Keyed(entry.getKey(), keyOf(entry.getKey()), entry.getValue()[0]);
+        }
+        Arrays.sort(keyed);
+        return keyed;
+    }
+
+    /**
+     * Find the first position of the given strings in collation order which
+     * holds a string not ordered before the given one.
+     *
+     * @param sorted strings in the order returned by sort or merge
+     * @param string string to look for
+     * @param key collation key of the string
+     * @return position of the string if it is held, otherwise where it would be inserted
+     */
+    private int search(String[] sorted, String string, byte[] key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int order = Arrays.compareUnsigned(keyOf(sorted[middle]), key);
+            if (order == 0) {
+                order = sorted[middle].compareTo(string);
+            }
+            if (order < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Number of keys currently kept.
+     *
+     * @return number of strings whose key is kept
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Get the key of the given string, computing it if it is not kept yet.
+     *
+     * @param string string to get the key for
+     * @return collation key as bytes
+     */
+    private byte[] keyOf(String string) {
+        byte[] key = keys.get(string);
+        if (key == null) {
+            synchronized (collator) {
+                key = collator.getCollationKey(string).toByteArray();
+            }
+            keys.put(string, key);
+        }
+        return key;
+    }
+
+    /**
+     * Find the letter A to Z the given letter is sorted with, looking at
+     * letters only and not at their accents or case.
+     *
+     * @param letter Latin letter which does not decompose
+     * @return letter A to Z or the given letter if it is sorted apart from them
+     */
+    private static char baseLetter(char letter) {
+        String value = String.valueOf(letter);
+
+        synchronized (LETTER_COLLATOR) {
+            // the last of the letters A to Z sorted no later than the given letter
+            int low = 0;
+            int high = LETTERS.length() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (LETTER_COLLATOR.compare(LETTERS.substring(middle, middle + 1), value) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (high < 0) {
+                return letter;
+            }
+
+            // letters sorted after Z belong to it only if they are equal to it
+            boolean sortedWith = high < LETTERS.length() - 1
+                    ? LETTER_COLLATOR.compare(value, LETTERS.substring(high + 1, high + 2)) < 0
+                    : LETTER_COLLATOR.compare(value, LETTERS.substring(high)) == 0;
+            return sortedWith ? LETTERS.charAt(high) : letter;
+        }
+    }
+
+    /**
+     * Create the English collator sorting letters which do not decompose
+     * with their base letter.
+     *
+     * @return new collator
+     */
+    private static Collator createCollator() {
+        String rules = ((RuleBasedCollator) Collator.getInstance(Locale.ENGLISH)).getRules();
+        try {
+            return new RuleBasedCollator(rules + BASE_LETTER_RULES);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid collation rules.", e);
+        }
+    }
+
+    /**
+     * Create a collator comparing letters only.
+     *
+     * @return new collator of primary strength
+     */
+    private static Collator createLetterCollator() {
+        Collator letters = (Collator) COLLATOR.clone();
+        letters.setStrength(Collator.PRIMARY);
+        return letters;
+    }
+
+    /** Distinct string paired with its collation key, ordered by the key. */
+    private static class Keyed implements Comparable<Keyed> {
+
+        /** String to be sorted. */
+        private final String string;
+
+        /** Collation key of the string. */
+        private final byte[] key;
+
+        /** Number of times the string is to be sorted. */
+        private final int count;
+
+        /**
+         * Pair a string with its key.
+         *
+         * @param string string to be sorted
+         * @param key collation key of the string
+         * @param count number of times the string is to be sorted
+         */
+        Keyed(String string, byte[] key, int count) {
+            this.string = string;
+            this.key = key;
+            this.count = count;
+        }
+
+        @Override
+        public int compareTo(Keyed other) {
+            int order = Arrays.compareUnsigned(key, other.key);
+            return order != 0 ? order : string.compareTo(other.string);
+        }
+    }
+}
@@ -0,0 +1,590 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * List of book entries stored column by column. The values of all rows are
+ * held in parallel arrays, one per field, instead of one object per book,
+ * and a book entry is created from its row whenever it is requested.
+ *
+ * Each distinct list of authors is stored once and referred to by id from
+ * every row listing it. ISBNs and ratings are packed into primitive values
+ * by CompactBookValues. The few ISBNs which cannot be packed are stored
+ * once each like lists of authors, and ratings are held as they are once a
+ * rating which is not a whole number of hundredths was added. Filters over a single field, e.g. all ratings, run
+ * over one contiguous array with the row number as their only input, see
+ * select. Like LazyBookList, every row is represented by a 64 bit key of its
+ * values, see RowKeys, so entries are only created for rows sharing the key
+ * of an entry to detect duplicates.
+ *
+ * This class is not thread-safe. Snapshots taken with snapshot can be read
+ * while the list changes.
+ */
+public class ColumnarBookList extends AbstractList<BookEntry> implements RandomAccess {
+
+    /** Initial number of rows. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Value of the ISBN column for the first ISBN which could not be packed, followed by the others. */
+    private static final long FIRST_OTHER_ISBN = Long.MIN_VALUE;
+
+    /** Keys of all rows in the list. */
+    private final RowKeys rowKeys;
+
+    /** Distinct lists of authors, indexed by their id, followed by free slots. */
+    private String[][] authorLists;
+
+    /** Id of each distinct list of authors. */
+    private final Map<List<String>, Integer> authorListIds;
+
+    /** Distinct ISBNs which could not be packed, indexed by their id, followed by free slots. */
+    private String[] otherIsbns;
+
+    /** Id of each distinct ISBN which could not be packed. */
+    private final Map<String, Integer> otherIsbnIds;
+
+    /** Title column. */
+    private String[] titles;
+
+    /** Column of the ids of the author lists. */
+    private int[] authorIds;
+
+    /** Rating column in hundredths or null once exactRatings is used instead. */
+    private short[] ratings;
+
+    /** Rating column holding the ratings as they are or null while every rating is a whole number of hundredths. */
+    private float[] exactRatings;
+
+    /** ISBN column holding packed ISBNs or, for ISBNs which could not be packed, their id past FIRST_OTHER_ISBN. */
+    private long[] isbns;
+
+    /** Page number column. */
+    private int[] pages;
+
+    /** Number of rows. */
+    private int size;
+
+    /** True if a snapshot refers to the current columns, so they are copied before rows are moved. */
+    private boolean shared;
+
+    /** Create a new and empty list. */
+    public ColumnarBookList() {
+        rowKeys = new RowKeys();
+        authorLists = new String[INITIAL_CAPACITY][];
+        authorListIds = new HashMap<>();
+        otherIsbns = new String[INITIAL_CAPACITY];
+        otherIsbnIds = new HashMap<>();
+        titles = new String[INITIAL_CAPACITY];
+        authorIds = new int[INITIAL_CAPACITY];
+        ratings = new short[INITIAL_CAPACITY];
+        isbns = new long[INITIAL_CAPACITY];
+        pages = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Creates a new book entry from the values of the row. Entries returned
+     * for the same row are equal, but not the same instance.
+     *
+     * @param index row of the entry
+     * @return book entry holding the values of the row
+     */
+    @Override
+    public BookEntry get(int index) {
+        Objects.checkIndex(index, size);
+        // the shared author list is safe to hand over, as book entries never expose it
+        return new BookEntry(titles[index], authorLists[authorIds[index]], rating(index), isbn(index),
+                pages[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the row keys, so entries are only created for rows sharing the key of the given entry.
+     *
+     * @param o an object e.g. a book entry
+     * @return true if an equal row is part of the list
+     */
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Looks up the row keys, so entries are only created for rows sharing
+     * the key of the given entry.
+     *
+     * @param o an object e.g. a book entry
+     * @return row of the first equal entry or -1 if there is none
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof BookEntry)) {
+            return -1;
+        }
+        BookEntry book = (BookEntry) o;
+        return rowKeys.find(book, RowKeys.keyOf(book), this::get);
+    }
+
+    @Override
+    public void add(int index, BookEntry book) {
+        Objects.requireNonNull(book, "Given book must not be null.");
+        Objects.checkIndex(index, size + 1);
+
+        short rating = CompactBookValues.packRating(book.getRating());
+        if (rating == CompactBookValues.INEXACT_RATING && exactRatings == null) {
+            useExactRatings();
+        }
+        long isbn = isbnValue(book.getISBN());
+        if (isbn == CompactBookValues.NOT_PACKED) {
+            int id = otherIsbnIds.size();
+            if (id == otherIsbns.length) {
+                otherIsbns = Arrays.copyOf(otherIsbns, id * 2);
+            }
+            otherIsbns[id] = book.getISBN();
+            otherIsbnIds.put(book.getISBN(), id);
+            isbn = FIRST_OTHER_ISBN + id;
+        }
+
+        ensureCapacity(size + 1);
+        if (index < size) {
+            unshare();
+        }
+        moveRows(index, index + 1, size - index);
+
+        titles[index] = book.getTitle();
+        authorIds[index] = authorListId(book);
+        if (exactRatings != null) {
+            exactRatings[index] = book.getRating();
+        } else {
+            ratings[index] = rating;
+        }
+        isbns[index] = isbn;
+        pages[index] = book.getPages();
+        rowKeys.add(index, RowKeys.keyOf(book));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public BookEntry remove(int index) {
+        BookEntry removed = get(index);
+
+        unshare();
+        moveRows(index + 1, index, size - index - 1);
+        size--;
+        titles[size] = null;
+        rowKeys.remove(index);
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes all matching rows in a single pass, moving every kept row at
+     * most once.
+     *
+     * @param filter condition the removed entries meet
+     * @return true if any row was removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super BookEntry> filter) {
+        Objects.requireNonNull(filter, "Given filter must not be null.");
+
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (filter.test(get(row))) {
+                // kept rows move from here on
+                unshare();
+            } else {
+                titles[kept] = titles[row];
+                authorIds[kept] = authorIds[row];
+                if (exactRatings != null) {
+                    exactRatings[kept] = exactRatings[row];
+                } else {
+                    ratings[kept] = ratings[row];
+                }
+                isbns[kept] = isbns[row];
+                pages[kept] = pages[row];
+                rowKeys.move(row, kept);
+                kept++;
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+
+        Arrays.fill(titles, kept, size, null);
+        rowKeys.truncate(kept);
+        size = kept;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Get the title of a row without creating its book entry.
+     *
+     * @param row row number
+     * @return title of the row
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public String getTitle(int row) {
+        Objects.checkIndex(row, size);
+        return titles[row];
+    }
+
+    /**
+     * Get the rating of a row without creating its book entry.
+     *
+     * @param row row number
+     * @return rating of the row
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public float getRating(int row) {
+        Objects.checkIndex(row, size);
+        return rating(row);
+    }
+
+    /**
+     * Get the ISBN of a row without creating its book entry.
+     *
+     * @param row row number
+     * @return ISBN of the row
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public String getISBN(int row) {
+        Objects.checkIndex(row, size);
+        return isbn(row);
+    }
+
+    /**
+     * Create the book entries of all rows with the given ISBN. Only the
+     * packed ISBN column is compared, so no ISBN is unpacked.
+     *
+     * @param isbn ISBN to look for
+     * @return book entries of the matching rows in row order
+     * @throws NullPointerException if the given ISBN is null
+     */
+    public List<BookEntry> selectByISBN(String isbn) {
+        Objects.requireNonNull(isbn, "Given ISBN must not be null.");
+        long value = isbnValue(isbn);
+        if (value == CompactBookValues.NOT_PACKED) {
+            return new ArrayList<>();
+        }
+        return select(row -> isbns[row] == value);
+    }
+
+    /**
+     * Get the number of pages of a row without creating its book entry.
+     *
+     * @param row row number
+     * @return number of pages of the row
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public int getPages(int row) {
+        Objects.checkIndex(row, size);
+        return pages[row];
+    }
+
+    /**
+     * Does the given author appear among the authors of a row?
+     *
+     * @param row row number
+     * @param author author to look for
+     * @return true if the row lists the author
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public boolean hasAuthor(int row, String author) {
+        Objects.checkIndex(row, size);
+        for (String listed : authorLists[authorIds[row]]) {
+            if (listed.equals(author)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the names of all authors listed by any row. Each distinct list of
+     * authors is only visited once.
+     *
+     * @return distinct author names in order of first appearance
+     */
+    public List<String> getAuthorNames() {
+        BitSet usedLists = new BitSet(authorListIds.size());
+        for (int row = 0; row < size; row++) {
+            usedLists.set(authorIds[row]);
+        }
+
+        Set<String> authors = new LinkedHashSet<>();
+        for (int id = usedLists.nextSetBit(0); id >= 0; id = usedLists.nextSetBit(id + 1)) {
+            authors.addAll(Arrays.asList(authorLists[id]));
+        }
+        return new ArrayList<>(authors);
+    }
+
+    /**
+     * Take an unmodifiable snapshot of the rows of the list. Rows are not
+     * copied but created on access like those of the list, and the snapshot
+     * is not affected by later changes of the list: lists of authors and
+     * ISBNs are only appended, and the list copies its columns before it
+     * moves rows the snapshot refers to.
+     *
+     * @return snapshot of the current rows
+     */
+    public List<BookEntry> snapshot() {
+        shared = true;
+        return new Snapshot(this);
+    }
+
+    /**
+     * Create the book entries of all rows meeting the given condition. The
+     * condition is given row numbers only, so it can read just the columns
+     * it needs through the column getters, and entries are created for
+     * matching rows only.
+     *
+     * @param rowCondition condition on the row number
+     * @return book entries of the matching rows in row order
+     * @throws NullPointerException if the given condition is null
+     */
+    public List<BookEntry> select(IntPredicate rowCondition) {
+        Objects.requireNonNull(rowCondition, "Given condition must not be null.");
+
+        List<BookEntry> selected = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            if (rowCondition.test(row)) {
+                selected.add(get(row));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Get the rating of a row from whichever rating column is used.
+     *
+     * @param row row number
+     * @return rating of the row
+     */
+    private float rating(int row) {
+        return rating(ratings, exactRatings, row);
+    }
+
+    /**
+     * Get the rating of a row from whichever of the given rating columns is used.
+     *
+     * @param ratings rating column in hundredths or null
+     * @param exactRatings rating column holding the ratings as they are or null
+     * @param row row number
+     * @return rating of the row
+     */
+    private static float rating(short[] ratings, float[] exactRatings, int row) {
+        return exactRatings != null ? exactRatings[row] : CompactBookValues.unpackRating(ratings[row]);
+    }
+
+    /**
+     * Get the ISBN of a row, unpacking it if it was packed.
+     *
+     * @param row row number
+     * @return ISBN of the row
+     */
+    private String isbn(int row) {
+        return isbn(isbns, otherIsbns, row);
+    }
+
+    /**
+     * Get the ISBN of a row of the given columns, unpacking it if it was packed.
+     *
+     * @param isbns ISBN column
+     * @param otherIsbns ISBNs which could not be packed by id
+     * @param row row number
+     * @return ISBN of the row
+     */
+    private static String isbn(long[] isbns, String[] otherIsbns, int row) {
+        long value = isbns[row];
+        return value >= 0 ? CompactBookValues.unpackISBN(value) : otherIsbns[(int) (value - FIRST_OTHER_ISBN)];
+    }
+
+    /**
+     * Get the value the ISBN column holds for the given ISBN. Every ISBN has
+     * a single value, so rows are compared by their values alone.
+     *
+     * @param isbn ISBN of a book
+     * @return packed ISBN, the id past FIRST_OTHER_ISBN of an ISBN which could
+     * not be packed or NOT_PACKED if such an ISBN was not stored yet
+     */
+    private long isbnValue(String isbn) {
+        long packed = CompactBookValues.packISBN(isbn);
+        if (packed != CompactBookValues.NOT_PACKED) {
+            return packed;
+        }
+        Integer id = otherIsbnIds.get(isbn);
+        return id == null ? CompactBookValues.NOT_PACKED : FIRST_OTHER_ISBN + id;
+    }
+
+    /**
+     * Replace the rating column in hundredths by one holding the ratings as
+     * they are, so that ratings which are no whole number of hundredths can
+     * be added as well.
+     */
+    private void useExactRatings() {
+        exactRatings = new float[ratings.length];
+        for (int row = 0; row < size; row++) {
+            exactRatings[row] = CompactBookValues.unpackRating(ratings[row]);
+        }
+        ratings = null;
+    }
+
+    /**
+     * Move consecutive rows within all columns.
+     *
+     * @param from first row to be moved
+     * @param to row the first row is moved to
+     * @param count number of rows to be moved
+     */
+    private void moveRows(int from, int to, int count) {
+        System.arraycopy(titles, from, titles, to, count);
+        System.arraycopy(authorIds, from, authorIds, to, count);
+        if (exactRatings != null) {
+            System.arraycopy(exactRatings, from, exactRatings, to, count);
+        } else {
+            System.arraycopy(ratings, from, ratings, to, count);
+        }
+        System.arraycopy(isbns, from, isbns, to, count);
+        System.arraycopy(pages, from, pages, to, count);
+    }
+
+    /**
+     * Get the id of the list of authors of the given book, storing a copy
+     * of the list if it was not seen before.
+     *
+     * @param book book whose authors are looked up
+     * @return id of the list of authors
+     */
+    private int authorListId(BookEntry book) {
+        // lists compare equal whatever their implementation, so the view finds the stored copy
+        Integer id = authorListIds.get(book.getAuthorList());
+        if (id == null) {
+            String[] authors = book.getAuthors();
+            id = authorListIds.size();
+            if (id == authorLists.length) {
+                authorLists = Arrays.copyOf(authorLists, id * 2);
+            }
+            authorLists[id] = authors;
+            authorListIds.put(Arrays.asList(authors), id);
+        }
+        return id;
+    }
+
+    /**
+     * Make sure the columns can hold the given number of rows.
+     *
+     * @param capacity required number of rows
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > titles.length) {
+            int newCapacity = Math.max(capacity, titles.length + (titles.length >> 1));
+            titles = Arrays.copyOf(titles, newCapacity);
+            authorIds = Arrays.copyOf(authorIds, newCapacity);
+            if (exactRatings != null) {
+                exactRatings = Arrays.copyOf(exactRatings, newCapacity);
+            } else {
+                ratings = Arrays.copyOf(ratings, newCapacity);
+            }
+            isbns = Arrays.copyOf(isbns, newCapacity);
+            pages = Arrays.copyOf(pages, newCapacity);
+            shared = false;
+        }
+    }
+
+    /** Copy the columns if a snapshot refers to them, so rows can be moved. */
+    private void unshare() {
+        if (shared) {
+            titles = titles.clone();
+            authorIds = authorIds.clone();
+            if (exactRatings != null) {
+                exactRatings = exactRatings.clone();
+            } else {
+                ratings = ratings.clone();
+            }
+            isbns = isbns.clone();
+            pages = pages.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Unmodifiable snapshot of the rows of the list. Rows are only appended
+     * to the columns past the end of the snapshot, any other change copies
+     * them first, so the rows of the snapshot never change.
+     */
+    private static final class Snapshot extends AbstractList<BookEntry> implements RandomAccess {
+
+        /** Title column. */
+        private final String[] titles;
+
+        /** Column of the ids of the author lists. */
+        private final int[] authorIds;
+
+        /** Rating column in hundredths or null. */
+        private final short[] ratings;
+
+        /** Rating column holding the ratings as they are or null. */
+        private final float[] exactRatings;
+
+        /** ISBN column. */
+        private final long[] isbns;
+
+        /** Page number column. */
+        private final int[] pages;
+
+        /** Distinct lists of authors by id. */
+        private final String[][] authorLists;
+
+        /** Distinct ISBNs which could not be packed by id. */
+        private final String[] otherIsbns;
+
+        /** Number of rows. */
+        private final int size;
+
+        /**
+         * Create a snapshot of the current columns of the given list.
+         *
+         * @param list list whose columns are referred to
+         */
+        Snapshot(ColumnarBookList list) {
+            titles = list.titles;
+            authorIds = list.authorIds;
+            ratings = list.ratings;
+            exactRatings = list.exactRatings;
+            isbns = list.isbns;
+            pages = list.pages;
+            authorLists = list.authorLists;
+            otherIsbns = list.otherIsbns;
+            size = list.size;
+        }
+
+        @Override
+        public BookEntry get(int index) {
+            Objects.checkIndex(index, size);
+            return new BookEntry(titles[index], authorLists[authorIds[index]], rating(ratings, exactRatings, index),
+                    isbn(isbns, otherIsbns, index), pages[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
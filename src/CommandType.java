@@ -6,5 +6,7 @@ public enum CommandType {
     SEARCH,
     LIST,
     REMOVE,
-    GROUP
+    GROUP,
+    SAVE,
+    LOOKUP
 }
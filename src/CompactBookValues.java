@@ -0,0 +1,127 @@
+/**
+ * Packs the ISBN and the rating of a book into primitive values, so book
+ * data stores can hold them without a String or float per book.
+ *
+ * An ISBN made of up to 16 digits, one of which may be replaced by an 'X'
+ * check digit, is packed into a non-negative long holding its digits as a
+ * number, its length, so leading zeros are kept, and the position of the
+ * 'X'. The digits take the high bits, so a short ISBN packs into a small
+ * value which needs few bytes when written with a variable length.
+ * A rating which is a whole number of hundredths is packed into a short.
+ * Values which cannot be packed without losing anything are left to the
+ * caller, see NOT_PACKED and INEXACT_RATING.
+ */
+public final class CompactBookValues { // the final keyword prevents subclassing of this utility class
+
+    /** Returned by packISBN for an ISBN which has to be stored as it is. */
+    public static final long NOT_PACKED = -1;
+
+    /** Returned by packRating for a rating which is not a whole number of hundredths. */
+    public static final short INEXACT_RATING = -1;
+
+    /** Number of bits holding the position of the 'X' plus one, or zero if there is none. */
+    private static final int X_POSITION_BITS = 4;
+
+    /** Number of bits holding the length of the ISBN. */
+    private static final int LENGTH_BITS = 5;
+
+    /** Number of low bits in front of the digits. */
+    private static final int NUMBER_SHIFT = X_POSITION_BITS + LENGTH_BITS;
+
+    /** Maximum number of digits, so the number fits into the remaining 54 bits. */
+    private static final int MAX_DIGITS = 16;
+
+    /** Number of hundredths per rating point. */
+    private static final float HUNDREDTHS = 100f;
+
+    /** Not to be used. */
+    private CompactBookValues() {
+        throw new UnsupportedOperationException("This constructor should never be used.");
+    }
+
+    /**
+     * Pack an ISBN into a long.
+     *
+     * @param isbn ISBN to be packed
+     * @return non-negative packed ISBN or NOT_PACKED if the ISBN holds
+     * other characters than digits and a single 'X' or too many digits
+     * @throws NullPointerException if the given ISBN is null
+     */
+    public static long packISBN(String isbn) {
+        int length = isbn.length();
+        if (length == 0 || length > MAX_DIGITS + 1) {
+            return NOT_PACKED;
+        }
+
+        long number = 0;
+        int digits = 0;
+        int xPosition = 0;
+        for (int i = 0; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                digits++;
+            } else if (c == 'X' && xPosition == 0 && i + 1 < (1 << X_POSITION_BITS)) {
+                xPosition = i + 1;
+            } else {
+                return NOT_PACKED;
+            }
+        }
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return NOT_PACKED;
+        }
+
+        return number << NUMBER_SHIFT | (long) length << X_POSITION_BITS | xPosition;
+    }
+
+    /**
+     * Restore an ISBN packed by packISBN.
+     *
+     * @param packed packed ISBN
+     * @return ISBN equal to the one packed
+     */
+    public static String unpackISBN(long packed) {
+        int xPosition = (int) (packed & ((1 << X_POSITION_BITS) - 1));
+        int length = (int) ((packed >>> X_POSITION_BITS) & ((1 << LENGTH_BITS) - 1));
+        long number = packed >>> NUMBER_SHIFT;
+
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            if (i == xPosition - 1) {
+                chars[i] = 'X';
+            } else {
+                chars[i] = (char) ('0' + number % 10);
+                number /= 10;
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Pack a rating into a short holding its hundredths.
+     *
+     * @param rating rating to be packed
+     * @return non-negative number of hundredths or INEXACT_RATING if
+     * unpacking would not restore exactly the given rating
+     */
+    public static short packRating(float rating) {
+        int hundredths = Math.round(rating * HUNDREDTHS);
+        // compares bits, as book entries do, so that -0.0 is not turned into 0.0
+        if (hundredths < 0 || hundredths > Short.MAX_VALUE
+                || Float.floatToIntBits(hundredths / HUNDREDTHS) != Float.floatToIntBits(rating)) {
+            return INEXACT_RATING;
+        }
+        return (short) hundredths;
+    }
+
+    /**
+     * Restore a rating packed by packRating.
+     *
+     * @param hundredths packed rating
+     * @return rating equal to the one packed
+     */
+    public static float unpackRating(short hundredths) {
+        // division is correctly rounded, so the result is the float nearest to the decimal value, as parsed
+        return hundredths / HUNDREDTHS;
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * All supported compression formats of book data files. The format of a file
+ * is identified by the ending following its .csv ending.
+ */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    DEFLATE(".deflate");
+
+    /** Size of the buffer holding compressed bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** File ending identifying the format. */
+    private final String suffix;
+
+    /**
+     * Create a compression format identified by the given file ending.
+     *
+     * @param suffix file ending appended to the .csv ending
+     */
+    Compression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * Get the file ending identifying this format.
+     *
+     * @return file ending appended to the .csv ending, empty for uncompressed files
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Find the compression format of the given file based on its ending.
+     *
+     * @param fileName file path with book data
+     * @return compression format of the file, NONE if the ending is not a known one
+     * @throws NullPointerException if the given file name is null
+     */
+    public static Compression of(Path fileName) {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        String name = String.valueOf(fileName.getFileName());
+
+        for (Compression compression : values()) {
+            if (compression != NONE && name.endsWith(compression.suffix)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Wrap the given stream so that it yields the decompressed bytes. Data is
+     * inflated as it is read, so the decompressed file is never held as a whole.
+     *
+     * @param in stream of the file content as stored
+     * @return stream of the decompressed file content
+     * @throws IOException if the stream does not start with a valid header
+     * @throws NullPointerException if the given stream is null
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        Objects.requireNonNull(in, "Given stream must not be null.");
+
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE:
+                // raw deflate data carries no zlib header
+                return new InflaterInputStream(in, new Inflater(true), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        // a given inflater is not released by the stream itself
+                        super.close();
+                        inf.end();
+                    }
+                };
+            case NONE:
+            default:
+                return in;
+        }
+    }
+}
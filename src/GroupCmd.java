@@ -1,9 +1,5 @@
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -64,12 +60,14 @@ public class GroupCmd extends LibraryCommand {
     public void execute(LibraryData data) {
         Objects.requireNonNull(data, "Given library data must not be null.");
 
-        if(data.getBookData().size() == 0) {
+        // reads an immutable version, so concurrent writes cannot change the grouped books
+        LibraryVersion libraryVersion = data.getCurrentVersion();
+
+        if(libraryVersion.getBookData().size() == 0) {
             emptyCase();
         } else {
 
-            LibraryData libraryData = data;
-            ArrayList<BookEntry> bookData = (ArrayList<BookEntry>) libraryData.getBookData();
+            List<BookEntry> bookData = libraryVersion.getBookData();
 
             if (bookData.isEmpty()) {
                 emptyCase();
@@ -78,11 +76,11 @@ public class GroupCmd extends LibraryCommand {
 
                 if (groupType.equals(TITLE)) {
                     System.out.println("Grouped data by TITLE");
-                    titleOutput(bookData);
+                    titleOutput(libraryVersion.getTitlesInOrder());
 
                 } else if (groupType.equals(AUTHOR)) {
                     System.out.println("Grouped data by AUTHOR");
-                    authorOutput(bookData);
+                    authorOutput(libraryVersion);
 
                 } else {
                     throw new IllegalArgumentException("Invalid Group input");
@@ -103,10 +101,10 @@ public class GroupCmd extends LibraryCommand {
     /**
      * Constructs the output given when grouped by title and outputs it to console.
      *
-     * @param bookData array list holding book data.
+     * @param titleList titles of all books in collation order.
      */
-    private void titleOutput(ArrayList<BookEntry> bookData) {
-        String[] titleArray = getSortedTitleArray(bookData);
+    private void titleOutput(List<String> titleList) {
+        String[] titleArray = titleList.toArray(new String[0]);
         List <String> numberValues = new ArrayList<String>();
         Boolean numberValuesPresent = false;
 
@@ -116,9 +114,9 @@ public class GroupCmd extends LibraryCommand {
         System.out.println("## " + currentChar);
 
         for (int i = 0; i < titleArray.length; i++) {
-            char firstCharTitle = titleArray[i].charAt(0);
+            char firstCharTitle = groupChar(titleArray[i]);
 
-            if (Character.isDigit(firstCharTitle)) {
+            if (Character.isDigit(titleArray[i].charAt(0))) {
                 numberValues.add(titleArray[i]);
                 numberValuesPresent = true;
 
@@ -142,40 +140,26 @@ public class GroupCmd extends LibraryCommand {
 
     /**
      * Constructs the output given when grouped by author and outputs it to console.
+     * The rows of the books of each author are taken from the version, so every book
+     * is only visited for the authors it lists and only the distinct titles printed
+     * are looked up. Authors are listed in collation order.
      *
-     * @param bookData array list holding book data.
+     * @param libraryVersion version of the book data to be considered for command execution.
      */
-    private void authorOutput(ArrayList<BookEntry> bookData) {
-        String[] authorArray = getSortedAuthorArray(bookData);
-
-        HashMap<String, ArrayList<String>> titleAndAuthors = new HashMap<String, ArrayList<String>>();
-
-        //gets all the data for the book and sets to specific variables.
-        for (int i = 0; i < bookData.size(); i++) {
-            ArrayList<String> authors = new ArrayList<>(bookData.size());
-            BookEntry book = bookData.get(i);
-            String title = book.getTitle();
-            String[] authorsArray = book.getAuthors();
-            authors.addAll(Arrays.asList(authorsArray));
-            titleAndAuthors.put(title, authors);
-        }
+    private void authorOutput(LibraryVersion libraryVersion) {
+        List<String> authors = libraryVersion.getAuthorNamesInOrder();
 
         // prints the output in the correct format.
-        for (int j = 0; j < authorArray.length; j++) {
-            String newAuthor = authorArray[j];
-            System.out.println("## " + newAuthor);
-
-            for (Map.Entry<String, ArrayList<String>> entry : titleAndAuthors.entrySet()) {
-                if (entry.getValue().contains(newAuthor)) {
+        for (String author : authors) {
+            System.out.println("## " + author);
 
-                    System.out.println("   " + entry.getKey());
-
-                    }
+            RowSet rows = libraryVersion.findRowsByAuthor(author);
+            for (String title : libraryVersion.getDistinctTitles(rows)) {
+                System.out.println("   " + title);
             }
         }
     }
 
-
     /**
      * Displays the cases where the first character of the title is a number after all
      * cases where first character is a letter have been displayed.
@@ -193,85 +177,15 @@ public class GroupCmd extends LibraryCommand {
     }
 
     /**
-     * Sorts the titleArray into lexicographical order.
-     *
-     * @param bookData array list holding book data.
-     * @return titleArray sorted titleArray.
-     */
-    private String[] getSortedTitleArray(ArrayList<BookEntry> bookData) {
-        String[] titleArray = getTitleArray(bookData);
-        Arrays.sort(titleArray);
-
-        return titleArray;
-
-    }
-
-    /**
-     * Sorts the authorArray into lexicographical order.
-     *
-     * @param bookData array list holding book data.
-     * @return authorArray sorted authorArray.
-     */
-    private String[] getSortedAuthorArray(ArrayList<BookEntry> bookData) {
-        String[] authorArray = getAuthorArray(bookData);
-        Arrays.sort(authorArray);
-
-        return authorArray;
-
-    }
-
-    /**
-     * Creates an array filled with all the book titles in the database.
-     *
-     * @param bookData array list holding book data.
-     * @return titleArray.
-     */
-    private String[] getTitleArray(ArrayList<BookEntry> bookData) {
-        String[] titleArray = new String[bookData.size()];
-
-        for (int i = 0; i < bookData.size(); i++) {
-            BookEntry book = bookData.get(i);
-            String title = book.getTitle();
-            titleArray[i] = title;
-
-        }
-        return titleArray;
-
-    }
-
-    /**
-     * Creates an array filled with all the authors in the database.
+     * Get the character a title is grouped under. Collation sorts titles
+     * regardless of case and accents, so the first letter is grouped under
+     * the letter A to Z it is sorted with, see CollationKeys.groupLetter.
      *
-     * @param bookData array list holding book data.
-     * @return authorArray without duplicates.
+     * @param title title of a book
+     * @return character heading the group of the title
      */
-    private String[] getAuthorArray(ArrayList<BookEntry> bookData) {
-        List <String> authorList = new ArrayList<String>();
-
-        for (int i = 0; i < bookData.size(); i++) {
-            BookEntry book = bookData.get(i);
-            String[] authorsPerBook = book.getAuthors();
-            authorList.addAll(Arrays.asList(authorsPerBook));
-        }
-
-        List <String> authorListNoDuplicates = removeDuplicates(authorList);
-        String[] authorArray = new String[authorListNoDuplicates.size()];
-        authorListNoDuplicates.toArray(authorArray);
-
-        return authorArray;
-
-    }
-    /**
-     * Creates an list of all authors in the database without duplicate values.
-     *
-     * @param authorList list holding author data.
-     * @return an list of all the authors in the database with duplicates removed.
-     */
-    private List<String> removeDuplicates(List<String> authorList) {
-        LinkedHashSet<String> hashSet = new LinkedHashSet<>(authorList);
-        List<String> authorListNoDuplicates = new ArrayList<>(hashSet);
-
-        return authorListNoDuplicates;
+    private static char groupChar(String title) {
+        return CollationKeys.groupLetter(title);
     }
 
 }
@@ -1,7 +1,13 @@
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
 
@@ -77,4 +83,142 @@ public class GroupCmdBasicTest extends GroupCmdTest {
         List<String> expectedGroups = List.of("A Author", "B Author", "C Author", "D Author", "E Author", "F Author");
         checkGroupOutputOrder(executeStdOutLines, expectedGroups);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExecuteGroupByTitleCollationOrder() {
+        testLibrary = new LibraryData();
+        List<BookEntry> bookData = new ArrayList<>();
+        bookData.add(new BookEntry("\u00c9clair", new String[] { "b author" }, 3.2f, "ISBN1", 100));
+        bookData.add(new BookEntry("Banana", new String[] { "A Author" }, 3.2f, "ISBN2", 100));
+        bookData.add(new BookEntry("eagle", new String[] { "a author" }, 3.2f, "ISBN3", 100));
+        bookData.add(new BookEntry("apple", new String[] { "C Author" }, 3.2f, "ISBN4", 100));
+        FieldTestUtils.setPrivateField(testLibrary, testLibrary.getClass(), "books", bookData);
+
+        // titles are sorted regardless of case and accents, and grouped by their base letter
+        String[] executeStdOutLines = CommandTestUtils.captureExecuteStdOutputLines(testCommand, testLibrary);
+        checkGroupOutputOrder(executeStdOutLines, List.of("A", "B", "E"));
+        assertEquals("Titles not printed in collation order.", List.of("apple", "Banana", "eagle"),
+                List.of(executeStdOutLines[2].strip(), executeStdOutLines[4].strip(), executeStdOutLines[6].strip()));
+
+        testCommand = new GroupCmd(AUTHOR_ARGUMENT);
+        executeStdOutLines = CommandTestUtils.captureExecuteStdOutputLines(testCommand, testLibrary);
+        checkGroupOutputOrder(executeStdOutLines, List.of("a author", "A Author", "b author", "C Author"));
+
+        // accented titles are compared directly, as they may not survive the captured output
+        assertEquals("Accented titles not sorted by their base letter.",
+                List.of("apple", "Banana", "eagle", "\u00c9clair"),
+                List.of(new CollationKeys().sort(List.of("\u00c9clair", "eagle", "Banana", "apple"))));
+    }
+
+    @Test
+    public void testExecuteGroupByTitleLettersWithoutDecomposition() {
+        testLibrary = new LibraryData();
+        List<BookEntry> bookData = new ArrayList<>();
+        bookData.add(new BookEntry("\u00d8re", new String[] { "A Author" }, 3.2f, "ISBN1", 100));
+        bookData.add(new BookEntry("Pear", new String[] { "A Author" }, 3.2f, "ISBN2", 100));
+        bookData.add(new BookEntry("Oak", new String[] { "A Author" }, 3.2f, "ISBN3", 100));
+        bookData.add(new BookEntry("\u0141odz", new String[] { "A Author" }, 3.2f, "ISBN4", 100));
+        bookData.add(new BookEntry("Lamp", new String[] { "A Author" }, 3.2f, "ISBN5", 100));
+        bookData.add(new BookEntry("Ozone", new String[] { "A Author" }, 3.2f, "ISBN6", 100));
+        FieldTestUtils.setPrivateField(testLibrary, testLibrary.getClass(), "books", bookData);
+
+        // headers are plain letters, so they survive the captured output unlike the titles
+        String[] executeStdOutLines = CommandTestUtils.captureExecuteStdOutputLines(testCommand, testLibrary);
+        checkGroupOutputOrder(executeStdOutLines, List.of("A", "L", "O", "P"));
+    }
+
+    @Test
+    public void testGroupLettersFollowCollationOrder() {
+        List<String> titles = List.of("Zebra", "\u00d8re", "Oak", "\u00c6sop", "Apple", "\u00dfa", "Sun", "Tree",
+                "\u0141odz", "Lamp", "\u0110uro", "Dog", "\u00c9clair", "Egg", "\u00de\u00f3r", "Mango");
+        String[] sorted = new CollationKeys().sort(titles);
+
+        List<String> groups = new ArrayList<>();
+        for (String title : sorted) {
+            String group = String.valueOf(CollationKeys.groupLetter(title));
+            if (groups.isEmpty() || !groups.get(groups.size() - 1).equals(group)) {
+                groups.add(group);
+            }
+        }
+        assertEquals("Each letter expected to head a single run of sorted titles.",
+                List.of("A", "D", "E", "L", "M", "O", "S", "T", "Z"), groups);
+    }
+
+    @Test
+    public void testCollationIgnoresDefaultLocale() {
+        List<String> titles = List.of("Zebra", "\u00c6sop", "Apple", "\u00c5ngstr\u00f6m", "Bee");
+        List<String> expected = List.of(new CollationKeys().sort(titles));
+
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            // Danish sorts \u00c6 and \u00c5 after Z
+            Locale.setDefault(new Locale("da", "DK"));
+            assertEquals("Collation order expected not to depend on the default locale.", expected,
+                    List.of(new CollationKeys().sort(titles)));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+        assertEquals("Unexpected collation order.", List.of("\u00c6sop", "\u00c5ngstr\u00f6m", "Apple", "Bee", "Zebra"),
+                expected);
+    }
+
+    @Test
+    public void testExecuteGroupByAuthorPrintsEachTitleOnce() {
+        testLibrary = new LibraryData();
+        List<BookEntry> bookData = new ArrayList<>();
+        bookData.add(new BookEntry("Second", new String[] { "A Author" }, 3.2f, "ISBN1", 100));
+        bookData.add(new BookEntry("First", new String[] { "A Author", "B Author" }, 3.2f, "ISBN2", 100));
+        bookData.add(new BookEntry("Second", new String[] { "A Author" }, 4.1f, "ISBN3", 200));
+        bookData.add(new BookEntry("First", new String[] { "B Author" }, 1.2f, "ISBN4", 300));
+        FieldTestUtils.setPrivateField(testLibrary, testLibrary.getClass(), "books", bookData);
+
+        testCommand = new GroupCmd(AUTHOR_ARGUMENT);
+        String[] executeStdOutLines = CommandTestUtils.captureExecuteStdOutputLines(testCommand, testLibrary);
+        List<String> lines = new ArrayList<>();
+        for (String line : executeStdOutLines) {
+            lines.add(line.strip());
+        }
+        assertEquals("Titles of each author expected once in book data order.",
+                List.of("Grouped data by AUTHOR", "## A Author", "Second", "First", "## B Author", "First"), lines);
+    }
+
+    @Test
+    public void testOrdersOfLaterVersionsMatchSortingAgain() throws IOException {
+        Path libraryPath = Files.createTempFile("books", ".csv");
+        try {
+            StringBuilder rows = new StringBuilder("title,authors,rating,isbn,num_pages\n");
+            for (int i = 0; i < 20; i++) {
+                rows.append("Title ").append((char) ('T' - i)).append(',').append("Author ").append((char) ('A' + i % 7))
+                        .append(",3.5,ISBN").append(i).append(",100\n");
+            }
+            Files.write(libraryPath, rows.toString().getBytes());
+            testLibrary = new LibraryData();
+            testLibrary.loadData(libraryPath);
+            testLibrary.getCurrentVersion().getTitlesInOrder();
+            testLibrary.getCurrentVersion().getAuthorNamesInOrder();
+
+            // all books of Author A and one more book are removed, a book of a new author is added
+            testLibrary.removeBooks(testLibrary.findByAuthor("Author A"));
+            testLibrary.removeBook(testLibrary.findByTitleIgnoreCase("Title C").get(0));
+            Files.write(libraryPath, ("title,authors,rating,isbn,num_pages\n"
+                    + "Title Aa,Author Z,3.5,ISBN20,100\n").getBytes());
+            testLibrary.loadData(libraryPath);
+
+            LibraryVersion version = testLibrary.getCurrentVersion();
+            List<String> titles = new ArrayList<>();
+            for (BookEntry book : version.getBookData()) {
+                titles.add(book.getTitle());
+            }
+            CollationKeys keys = new CollationKeys();
+            assertEquals("Titles merged into the earlier order expected in collation order.",
+                    Arrays.asList(keys.sort(titles)), version.getTitlesInOrder());
+            assertEquals("Authors merged into the earlier order expected in collation order.",
+                    Arrays.asList(keys.sort(version.getAuthorNames())), version.getAuthorNamesInOrder());
+            assertEquals("Unexpected authors after removing all books of an author.",
+                    List.of("Author B", "Author C", "Author D", "Author E", "Author F", "Author G", "Author Z"),
+                    version.getAuthorNamesInOrder());
+        } finally {
+            Files.deleteIfExists(libraryPath);
+        }
+    }
+}
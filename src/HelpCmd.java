@@ -36,11 +36,13 @@ public class HelpCmd extends LibraryCommand {
 
         bld.append(padding).append(CommandType.HELP);
         bld.append(padding).append(CommandType.EXIT);
-        bld.append(padding).append(CommandType.ADD).append(" path/to/book/data.csv");
+        bld.append(padding).append(CommandType.ADD).append(" [--stream|--mapped|--parallel|--lazy|--follow|--columnar|--offheap] [--tolerant] path/to/book/data.csv[.gz|.deflate]|path/to/*.csv|path/to/directory|library.snapshot");
         bld.append(padding).append(CommandType.LIST).append(" [short|long]");
         bld.append(padding).append(CommandType.SEARCH).append(" <value>");
+        bld.append(padding).append(CommandType.LOOKUP).append(" <isbn>");
         bld.append(padding).append(CommandType.REMOVE).append(" TITLE|AUTHOR <value>");
         bld.append(padding).append(CommandType.GROUP).append(" TITLE|AUTHOR");
+        bld.append(padding).append(CommandType.SAVE).append(" path/to/library.snapshot");
 
         return bld.toString();
     }
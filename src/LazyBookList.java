@@ -0,0 +1,428 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * List of book entries which keeps rows loaded from book data files as
+ * file offsets only. A book entry is decoded from its file whenever it is
+ * requested and is not kept afterwards.
+ *
+ * Entries added directly are held in memory as usual. Every row is
+ * represented by a 64 bit key of its values, see RowKeys, so only rows
+ * sharing the key of an entry are decoded to detect duplicates.
+ *
+ * Files loaded lazily must not change while they are part of the list and
+ * stay open until the list is closed. This class is not thread-safe, but
+ * rows may be read by several threads while the list does not change:
+ * rows are decoded through a block shared by all readers, so decoding
+ * holds the monitor of the list. Snapshots taken with snapshot can be read
+ * while the list changes.
+ */
+public class LazyBookList extends AbstractList<BookEntry> implements RandomAccess, Closeable {
+
+    /** Number of bits used for the offset within a file. */
+    private static final int OFFSET_BITS = 48;
+
+    /** Mask extracting the offset from a row location. */
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /** Largest number of files a list can refer to. */
+    private static final int MAX_FILES = 1 << (Long.SIZE - OFFSET_BITS - 1);
+
+    /** Initial size of the block read ahead when decoding rows. */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /** Number of bytes read for a row which does not follow the current block, enough for most rows. */
+    private static final int ROW_READ_SIZE = 1 << 10;
+
+    /** Initial number of rows. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Channels of all files rows were loaded from. */
+    private final List<FileChannel> files;
+
+    /** Paths of all files rows were loaded from, used to read rows of snapshots once the list is closed. */
+    private final List<Path> paths;
+
+    /** Keys of all rows in the list. */
+    private final RowKeys rowKeys;
+
+    /** Parser used to decode rows. */
+    private final MappedBookParser parser;
+
+    /** File id and offset of each lazy row. */
+    private long[] locations;
+
+    /** Entry of each row held in memory or null for lazy rows. */
+    private BookEntry[] entries;
+
+    /** Number of rows. */
+    private int size;
+
+    /** True if a snapshot refers to the current row arrays, so they are copied before rows are moved. */
+    private boolean shared;
+
+    /** True once the files were closed. */
+    private boolean closed;
+
+    /** Bytes read ahead from a file to decode consecutive rows. */
+    private ByteBuffer block;
+
+    /** Id of the file the current block was read from or -1 if there is none. */
+    private int blockFile;
+
+    /** File offset of the current block. */
+    private long blockStart;
+
+    /** True if the current block reaches the end of its file. */
+    private boolean blockAtEnd;
+
+    /**
+     * Create a new and empty list.
+     *
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @throws NullPointerException if the given dictionary is null
+     */
+    public LazyBookList(AuthorDictionary authorDictionary) {
+        Objects.requireNonNull(authorDictionary, "Given author dictionary must not be null.");
+        files = new ArrayList<>();
+        paths = new ArrayList<>();
+        rowKeys = new RowKeys();
+        parser = new MappedBookParser(authorDictionary);
+        locations = new long[INITIAL_CAPACITY];
+        entries = new BookEntry[INITIAL_CAPACITY];
+        size = 0;
+        block = ByteBuffer.allocate(BLOCK_SIZE);
+        blockFile = -1;
+    }
+
+    /**
+     * Open the given book data file so rows of it can be added with addRow.
+     * The file stays open until the list is closed.
+     *
+     * @param fileName file path with book data
+     * @return id of the file
+     * @throws IOException if the file could not be opened
+     * @throws IllegalStateException if the list refers to too many files already
+     * @throws NullPointerException if the given file name is null
+     */
+    public synchronized int addFile(Path fileName) throws IOException {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        if (files.size() == MAX_FILES) {
+            throw new IllegalStateException("No more than " + MAX_FILES + " files can be loaded lazily.");
+        }
+
+        files.add(FileChannel.open(fileName, StandardOpenOption.READ));
+        paths.add(fileName);
+        return files.size() - 1;
+    }
+
+    /**
+     * Add a row of a file opened with addFile, unless an equal row is
+     * part of the list already. Only the location of the row is kept.
+     *
+     * @param fileId id of the file holding the row
+     * @param offset file offset of the first byte of the row
+     * @param book book entry parsed from the row, used to compute its key
+     * @return true if the row was added, false if it is a duplicate
+     * @throws IndexOutOfBoundsException if the file id is unknown
+     * @throws NullPointerException if the given book entry is null
+     */
+    public boolean addRow(int fileId, long offset, BookEntry book) {
+        Objects.checkIndex(fileId, files.size());
+        long key = RowKeys.keyOf(book);
+        if (rowKeys.find(book, key, this::get) >= 0) {
+            return false;
+        }
+
+        ensureCapacity(size + 1);
+        rowKeys.add(size, key);
+        locations[size] = ((long) fileId << OFFSET_BITS) | offset;
+        entries[size] = null;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public BookEntry get(int index) {
+        Objects.checkIndex(index, size);
+
+        BookEntry entry = entries[index];
+        return entry != null ? entry : decode(locations[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the row keys, so only rows sharing the key of the given entry are decoded.
+     *
+     * @param o an object e.g. a book entry
+     * @return true if an equal row is part of the list
+     */
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Looks up the row keys, so only rows sharing the key of the given entry are decoded.
+     *
+     * @param o an object e.g. a book entry
+     * @return row of the first equal entry or -1 if there is none
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof BookEntry)) {
+            return -1;
+        }
+        BookEntry book = (BookEntry) o;
+        return rowKeys.find(book, RowKeys.keyOf(book), this::get);
+    }
+
+    @Override
+    public void add(int index, BookEntry book) {
+        Objects.requireNonNull(book, "Given book must not be null.");
+        Objects.checkIndex(index, size + 1);
+
+        ensureCapacity(size + 1);
+        if (index < size) {
+            unshare();
+        }
+        System.arraycopy(locations, index, locations, index + 1, size - index);
+        System.arraycopy(entries, index, entries, index + 1, size - index);
+        entries[index] = book;
+        rowKeys.add(index, RowKeys.keyOf(book));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public BookEntry remove(int index) {
+        BookEntry removed = get(index);
+
+        unshare();
+        System.arraycopy(locations, index + 1, locations, index, size - index - 1);
+        System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+        size--;
+        entries[size] = null;
+        rowKeys.remove(index);
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Take an unmodifiable snapshot of the rows of the list. Rows are not
+     * copied but decoded on access like those of the list, and the
+     * snapshot is not affected by later changes of the list, which copies
+     * its row arrays before it moves rows the snapshot refers to.
+     *
+     * @return snapshot of the current rows
+     */
+    public List<BookEntry> snapshot() {
+        shared = true;
+        return new Snapshot(locations, entries, size);
+    }
+
+    /**
+     * Close all files rows were loaded from. Rows can still be read, e.g.
+     * through snapshots taken before, but lazy rows then open their file
+     * again for every block read.
+     *
+     * @throws IOException if a file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        IOException failure = null;
+        for (FileChannel file : files) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Decode the row at the given location. The block read ahead is shared,
+     * so rows are decoded by one thread at a time. A whole block is read
+     * ahead for rows read one after another, e.g. by a scan. A row far from
+     * the current block is read on its own, as rows looked up one at a time,
+     * e.g. the books of an author, are rarely next to each other.
+     *
+     * @param location file id and offset of the row
+     * @return book entry holding the values of the row
+     * @throws UncheckedIOException if the row could not be read
+     */
+    private synchronized BookEntry decode(long location) {
+        int fileId = (int) (location >>> OFFSET_BITS);
+        long offset = location & OFFSET_MASK;
+
+        try {
+            if (fileId != blockFile || offset < blockStart || offset >= blockStart + block.limit()) {
+                long blockEnd = blockStart + block.limit();
+                boolean following = fileId == blockFile && offset >= blockEnd && offset < blockEnd + block.capacity();
+                readBlock(fileId, offset, following ? block.capacity() : ROW_READ_SIZE);
+            }
+            // rereads from the row itself, with a larger block if needed, until the whole row is held
+            while (!holdsRow((int) (offset - blockStart))) {
+                if (offset == blockStart && block.limit() == block.capacity()) {
+                    block = ByteBuffer.allocate(block.capacity() * 2);
+                }
+                readBlock(fileId, offset, block.capacity());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return parser.parseLine(block, (int) (offset - blockStart), block.limit());
+    }
+
+    /**
+     * Does the current block hold the complete row starting at the given position?
+     *
+     * @param start position of the row within the block
+     * @return true if the row ends within the block
+     */
+    private boolean holdsRow(int start) {
+        if (blockAtEnd) {
+            return true;
+        }
+        for (int i = start; i < block.limit(); i++) {
+            if (block.get(i) == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a block of the given file starting at the given offset.
+     *
+     * @param fileId id of the file
+     * @param offset file offset of the block
+     * @param length number of bytes to read, at most the capacity of the block
+     * @throws IOException if the file could not be read
+     */
+    private void readBlock(int fileId, long offset, int length) throws IOException {
+        if (closed) {
+            try (FileChannel reopened = FileChannel.open(paths.get(fileId), StandardOpenOption.READ)) {
+                readBlock(reopened, fileId, offset, length);
+            }
+        } else {
+            readBlock(files.get(fileId), fileId, offset, length);
+        }
+    }
+
+    /**
+     * Read a block of the given channel starting at the given offset.
+     *
+     * @param channel channel of the file
+     * @param fileId id of the file
+     * @param offset file offset of the block
+     * @param length number of bytes to read, at most the capacity of the block
+     * @throws IOException if the file could not be read
+     */
+    private void readBlock(FileChannel channel, int fileId, long offset, int length) throws IOException {
+        block.clear();
+        block.limit(length);
+        blockAtEnd = false;
+
+        while (block.hasRemaining()) {
+            if (channel.read(block, offset + block.position()) == -1) {
+                blockAtEnd = true;
+                break;
+            }
+        }
+        block.flip();
+        blockFile = fileId;
+        blockStart = offset;
+    }
+
+    /**
+     * Make sure the row arrays can hold the given number of rows.
+     *
+     * @param capacity required number of rows
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > locations.length) {
+            int newCapacity = Math.max(capacity, locations.length + (locations.length >> 1));
+            locations = Arrays.copyOf(locations, newCapacity);
+            entries = Arrays.copyOf(entries, newCapacity);
+            shared = false;
+        }
+    }
+
+    /** Copy the row arrays if a snapshot refers to them, so rows can be moved. */
+    private void unshare() {
+        if (shared) {
+            locations = locations.clone();
+            entries = entries.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Unmodifiable snapshot of the rows of the list. Rows are only appended
+     * to the row arrays past the end of the snapshot, any other change copies
+     * them first, so the rows of the snapshot never change.
+     */
+    private final class Snapshot extends AbstractList<BookEntry> implements RandomAccess {
+
+        /** File id and offset of each lazy row. */
+        private final long[] locations;
+
+        /** Entry of each row held in memory or null for lazy rows. */
+        private final BookEntry[] entries;
+
+        /** Number of rows. */
+        private final int size;
+
+        /**
+         * Create a snapshot of the given row arrays.
+         *
+         * @param locations file id and offset of each lazy row
+         * @param entries entry of each row held in memory
+         * @param size number of rows
+         */
+        Snapshot(long[] locations, BookEntry[] entries, int size) {
+            this.locations = locations;
+            this.entries = entries;
+            this.size = size;
+        }
+
+        @Override
+        public BookEntry get(int index) {
+            Objects.checkIndex(index, size);
+
+            BookEntry entry = entries[index];
+            return entry != null ? entry : decode(locations[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.file.Path;
 import java.util.Scanner;
 
 /**
@@ -26,9 +27,20 @@ public class LibraryBrowser {
         stdInScan = new Scanner(System.in);
     }
 
+    /**
+     * Create library browser whose book data is journaled to the given
+     * file and recovered from it.
+     * @param journalFile file journaling all changes of the book data
+     */
+    public LibraryBrowser(Path journalFile) {
+        this();
+        data.openJournal(journalFile);
+    }
+
     /** Run the library browser and start the corresponding main loop. */
     public void run() {
         mainLoop();
+        data.closeJournal();
         stdInScan.close();
     }
 
@@ -57,6 +69,8 @@ public class LibraryBrowser {
                 if (command instanceof ExitCmd) {
                     exit = true;
                 } else {
+                    // rows appended to followed files since the last command are visible to this one
+                    data.pollFollowedFiles();
                     cmdIntrp.executeCommand(command, data);
                 }
             }           
@@ -0,0 +1,198 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.StampedLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of LibraryData shared between threads. Every
+ * thread runs lookups by ISBN and title and removes a book every now and
+ * then. The library as it is, whose lookups read the current version
+ * optimistically, is compared with a library whose methods are synchronized,
+ * as they were before the stamped lock. The synchronized library is given a
+ * lock which does not lock, so it pays for its monitor only.
+ *
+ * Both variants run once untimed before the measured runs, so neither pays
+ * for compiling the workload.
+ *
+ * Usage: java LibraryContentionBenchmark [books] [seconds per run] [writes per 1000 operations]
+ */
+public final class LibraryContentionBenchmark {
+
+    /** Thread counts measured. */
+    private static final int[] THREAD_COUNTS = { 1, 4, 16, 64 };
+
+    /** Hidden constructor, as this class only runs the benchmark. */
+    private LibraryContentionBenchmark() {
+        throw new UnsupportedOperationException("This class should not be instantiated.");
+    }
+
+    /**
+     * Run the benchmark and print the throughput per thread count.
+     *
+     * @param args optional number of books, seconds per run and writes per 1000 operations
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int writesPerMille = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        // warms up both variants
+        run(createLibrary(new SynchronizedLibraryData(), bookCount), 1, seconds, writesPerMille);
+        run(createLibrary(new LibraryData(), bookCount), 1, seconds, writesPerMille);
+
+        System.out.println("threads  synchronized ops/s  stamped ops/s");
+        for (int threads : THREAD_COUNTS) {
+            long synchronizedOps = run(createLibrary(new SynchronizedLibraryData(), bookCount), threads, seconds,
+                    writesPerMille);
+            long stampedOps = run(createLibrary(new LibraryData(), bookCount), threads, seconds, writesPerMille);
+            System.out.printf("%7d  %18d  %13d%n", threads, synchronizedOps / seconds, stampedOps / seconds);
+        }
+    }
+
+    /**
+     * Fill the given empty library with the given number of generated books.
+     *
+     * @param library empty library to fill
+     * @param bookCount number of books
+     * @return given library with all books indexed
+     */
+    private static LibraryData createLibrary(LibraryData library, int bookCount) {
+        List<BookEntry> books = library.getBookData();
+        for (int i = 0; i < bookCount; i++) {
+            books.add(new BookEntry("Title " + i, new String[] { "Author " + (i % 5_000) }, (i % 500) / 100f,
+                    "ISBN" + i, 100 + i % 400));
+        }
+        // builds the indexes before measuring
+        library.findByISBN("ISBN0");
+        return library;
+    }
+
+    /**
+     * Run the workload on the given number of threads for the given time.
+     *
+     * @param library library shared by all threads
+     * @param threads number of threads
+     * @param seconds time to run for
+     * @param writesPerMille number of removals per 1000 operations
+     * @return number of operations completed
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static long run(LibraryData library, int threads, int seconds, int writesPerMille)
+            throws InterruptedException {
+        int bookCount = library.getBookData().size();
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            workers.add(new Thread(() -> {
+                while (running.get()) {
+                    int book = random.nextInt(bookCount);
+                    int choice = random.nextInt(1000);
+                    operate(library, book, choice, writesPerMille);
+                    operations.increment();
+                }
+                done.countDown();
+            }));
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        return operations.sum();
+    }
+
+    /**
+     * Run a single operation of the workload.
+     *
+     * @param library library to operate on
+     * @param book number of the generated book to operate on
+     * @param choice random number between 0 and 999 choosing the operation
+     * @param writesPerMille number of removals per 1000 operations
+     */
+    private static void operate(LibraryData library, int book, int choice, int writesPerMille) {
+        if (choice < writesPerMille) {
+            for (BookEntry found : library.findByISBN("ISBN" + book)) {
+                library.removeBook(found);
+            }
+        } else if (choice % 2 == 0) {
+            library.findByISBN("ISBN" + book);
+        } else {
+            library.findByTitleIgnoreCase("title " + book);
+        }
+    }
+
+    /**
+     * Library whose methods run by the benchmark are synchronized, as every
+     * method of the library was before it was guarded by a stamped lock.
+     */
+    private static final class SynchronizedLibraryData extends LibraryData {
+
+        /** Create a new and empty library guarded by its monitor only. */
+        SynchronizedLibraryData() {
+            super(new MonitorLock());
+        }
+
+        @Override
+        public synchronized List<BookEntry> getBookData() {
+            return super.getBookData();
+        }
+
+        @Override
+        public synchronized List<BookEntry> findByISBN(String isbn) {
+            return super.findByISBN(isbn);
+        }
+
+        @Override
+        public synchronized List<BookEntry> findByTitleIgnoreCase(String title) {
+            return super.findByTitleIgnoreCase(title);
+        }
+
+        @Override
+        public synchronized boolean removeBook(BookEntry book) {
+            return super.removeBook(book);
+        }
+    }
+
+    /**
+     * Lock which does not lock, for a library whose monitor is held around
+     * every call already. Optimistic reads always fail, so lookups read the
+     * current version as they would under the read lock.
+     */
+    private static final class MonitorLock extends StampedLock {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public long writeLock() {
+            return 1L;
+        }
+
+        @Override
+        public void unlockWrite(long stamp) {
+        }
+
+        @Override
+        public long readLock() {
+            return 1L;
+        }
+
+        @Override
+        public void unlockRead(long stamp) {
+        }
+
+        @Override
+        public long tryOptimisticRead() {
+            return 0L;
+        }
+    }
+}
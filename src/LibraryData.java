@@ -1,28 +1,260 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /** 
  * Class responsible for handling currently loaded
  * book data and loading additional data from file.
+ *
+ * The library can be shared between threads. Writes hold the write lock
+ * of the library. Lookups through the find methods read the index snapshots
+ * of the current version optimistically, so they do not wait for each other
+ * and only wait for a write which is in progress. Readers of the
+ * whole book data take an immutable version with getCurrentVersion, which
+ * is never changed by later writes and needs no lock to be read. Every
+ * write publishes a new version once it is done, sharing all book data
+ * and index entries it did not change with the previous version.
+ *
+ * Once a journal is opened with openJournal, every book added or removed
+ * through this class is journaled, and the library recovers its book data
+ * from the journal when it is opened again after a restart.
  */
 public class LibraryData {
 
-    /** Currently loaded book data. */
-    private final List<BookEntry> books;
+    /** Removed books are compacted away once they make up more than this fraction of the book data. */
+    private static final int COMPACTION_RATIO = 4;
+
+    /** Number of journal records after which the journal is folded into its snapshot. */
+    private static final int CHECKPOINT_RECORDS = 100_000;
+
+    /** 
+     * Currently loaded book data, held in a ChunkedBookList so versions
+     * share its unchanged chunks. Replaced by a LazyBookList, a
+     * ColumnarBookList or an OffHeapBookList holding the same entries once
+     * the first file is loaded lazily, into columns or off the heap.
+     */
+    private List<BookEntry> books;
+
+    /**
+     * Set of all loaded books used to detect duplicates in constant time.
+     * Like all indexes, it is rebuilt whenever the book data was replaced or
+     * resized without going through this class. Indexes are unused for book
+     * data creating its entries on access, see isDecodedOnAccess, which
+     * detects duplicates by row keys itself.
+     */
+    private Set<BookEntry> bookSet;
+
+    /** Positions of all loaded books by ISBN. */
+    private BookIndex isbnIndex;
+
+    /** Positions of all loaded books by case-folded title. */
+    private BookIndex titleIndex;
+
+    /** Postings of the positions of all loaded books per author. */
+    private BookIndex authorIndex;
+
+    /** Book data the indexes were built for. */
+    private List<BookEntry> indexedBooks;
+
+    /** Number of books the indexes were last in sync with, including removed ones. */
+    private int indexedSize;
+
+    /**
+     * Positions of removed books still held in the book data. Removing an
+     * indexed book only marks and clears its position, so no books are
+     * shifted. Removed
+     * books are compacted away once they make up more than a quarter of the
+     * book data, on demand with compact, and before the book data is handed
+     * out or copied. Positions are only marked while the indexes are in sync.
+     */
+    private final BitSet removedRows;
+
+    /** Number of positions marked in removedRows. */
+    private int removedCount;
+
+    /**
+     * Number of the current layout of the positions, changed whenever books
+     * move to other positions, e.g. by compaction. Versions of the same
+     * layout refer to a book by the same position.
+     */
+    private int layout;
+
+    /** Shared instances of the author names of all loaded books. */
+    private final AuthorDictionary authorDictionary;
+
+    /** Followed book data files and the number of their bytes ingested so far. */
+    private final Map<Path, Long> followedFiles;
+
+    /** Followed book data files whose invalid rows are quarantined. */
+    private final Set<Path> tolerantFollowedFiles;
+
+    /**
+     * Immutable version of the book data handed to readers or null if the
+     * book data was handed out by getBookData since it was published.
+     * Writers publish a new version once they are done, so readers keep
+     * reading the previous version while a write is in progress.
+     */
+    private volatile LibraryVersion version;
+
+    /** Version published last, which the next version derives its orders from. */
+    private LibraryVersion published;
+
+    /** Book data the last version was published for. */
+    private List<BookEntry> publishedBooks;
+
+    /** Number of books held, including removed ones, when the last version was published. */
+    private int publishedSize;
+
+    /** Number of removed books held when the last version was published. */
+    private int publishedRemovedCount;
+
+    /** Layout of the positions when the last version was published. */
+    private int publishedLayout;
+
+    /** Collation keys of the titles, shared by all versions so they are computed once per title. */
+    private final CollationKeys titleKeys;
+
+    /** Collation keys of the author names, shared by all versions. */
+    private final CollationKeys authorKeys;
+
+    /** Journal of all books added and removed or null if changes are not journaled. */
+    private LibraryJournal journal;
+
+    /** Lock guarding the book data, the indexes, the followed files and the journal. */
+    private final StampedLock lock;
 
     /** Create a new and empty book library. */
     public LibraryData() {
-        books = new ArrayList<>();
+        this(new StampedLock());
+    }
+
+    /**
+     * Create a new and empty book library guarded by the given lock. A
+     * library whose methods are synchronized instead passes a lock which
+     * does not lock, see LibraryContentionBenchmark.
+     *
+     * @param lock lock guarding the library
+     * @throws NullPointerException if the given lock is null
+     */
+    LibraryData(StampedLock lock) {
+        Objects.requireNonNull(lock, "Given lock must not be null.");
+
+        books = new ChunkedBookList();
+        removedRows = new BitSet();
+        authorDictionary = new AuthorDictionary();
+        followedFiles = new LinkedHashMap<>();
+        tolerantFollowedFiles = new HashSet<>();
+        titleKeys = new CollationKeys();
+        authorKeys = new CollationKeys();
+        published = LibraryVersion.empty(titleKeys, authorKeys);
+        this.lock = lock;
     }
 
     /** 
-     * Get all available book entries.
+     * Get all available book entries. This is the working copy changed by
+     * every write, so it must not be used while other threads change the
+     * library, and changing it drops the current version. Books removed
+     * later are only marked as removed, so the list is up to date until the
+     * next removal. Readers use getCurrentVersion instead. Changes made
+     * to the list directly are not journaled.
      * @return available book entries
      */
     public List<BookEntry> getBookData() {
-        return books;
+        long stamp = lock.writeLock();
+        try {
+            compactRows();
+            // the list may be changed anywhere, so later versions do not rely on any earlier position
+            layout++;
+            version = null;
+            return books;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get an immutable version of the current book data. A version is
+     * published by every write once it is done and shared by all readers
+     * until the next write finished, so getting it does not wait for a
+     * write in progress. Only after the book data was handed out by
+     * getBookData, the next version is published on request under the
+     * write lock, as the indexes may have to be rebuilt first.
+     *
+     * @return current version of the book data
+     */
+    public LibraryVersion getCurrentVersion() {
+        LibraryVersion current = version;
+        if (current != null) {
+            return current;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            publish();
+            return version;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Publish a version of the current book data while holding the write
+     * lock, unless the book data did not change since the last version was
+     * published. Books are only appended or marked as removed as long as the
+     * layout stays the same, so the number of books held and of removed books
+     * tell whether the book data changed. Only the references to the chunks
+     * of the book data and of the indexes are copied.
+     */
+    private void publish() {
+        if (version != null && publishedBooks == books && publishedSize == books.size()
+                && publishedRemovedCount == removedCount && publishedLayout == layout) {
+            return;
+        }
+
+        if (publishedBooks != books) {
+            // positions of other book data do not refer to the books of the last version
+            layout++;
+        }
+        if (isDecodedOnAccess()) {
+            published = published.next(snapshotBooks(), books.size(), layout, null);
+        } else {
+            syncIndexes();
+            // book data is held in a ChunkedBookList unless another list was put in place of it
+            List<BookEntry> snapshot = books instanceof ChunkedBookList ? ((ChunkedBookList) books).snapshot()
+                    : new ArrayList<>(books);
+            BookIndex[] indexes = { isbnIndex.snapshot(), titleIndex.snapshot(), authorIndex.snapshot() };
+            published = published.next(snapshot, books.size() - removedCount, layout, indexes);
+        }
+        publishedBooks = books;
+        publishedSize = books.size();
+        publishedRemovedCount = removedCount;
+        publishedLayout = layout;
+        version = published;
     }
 
     /**
@@ -32,28 +264,1158 @@ public class LibraryData {
      * @throws NullPointerException if the given path is null
      */
     public boolean loadData(Path libraryFile) {
+        return loadData(libraryFile, LoadMode.STREAM);
+    }
+
+    /**
+     * Initiate book data loading for the given path using the given load mode.
+     * Compressed files can only be read sequentially and are therefore always
+     * streamed, whatever mode is given.
+     * @param libraryFile specified path to book data file
+     * @param mode parser backend used to read the file
+     * @return true if loading was successful, false otherwise
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public boolean loadData(Path libraryFile, LoadMode mode) {
+        return loadData(libraryFile, mode, false);
+    }
+
+    /**
+     * Initiate book data loading for the given path using the given load mode.
+     *
+     * In tolerant mode invalid rows do not fail the load. They are skipped and
+     * appended to a quarantine file next to the book data file together with
+     * their line numbers, and their number is reported once loading finished.
+     *
+     * @param libraryFile specified path to book data file
+     * @param mode parser backend used to read the file
+     * @param tolerant true to quarantine invalid rows instead of failing the load
+     * @return true if loading was successful, false otherwise
+     * @throws NullPointerException if any of the given parameters are null
+     * @throws IllegalArgumentException if a row holds invalid book data and the load is not tolerant
+     */
+    public boolean loadData(Path libraryFile, LoadMode mode, boolean tolerant) {
         Objects.requireNonNull(libraryFile, "Given file path must not be null.");
-               
-        LibraryFileLoader loader = new LibraryFileLoader();
-        boolean success = loader.loadFileContent(libraryFile);
+        Objects.requireNonNull(mode, "Given load mode must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            return ingestFile(libraryFile, mode, tolerant);
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Load the given book data file while holding the write lock.
+     *
+     * @param libraryFile specified path to book data file
+     * @param mode parser backend used to read the file
+     * @param tolerant true to quarantine invalid rows instead of failing the load
+     * @return true if loading was successful, false otherwise
+     * @throws IllegalArgumentException if a row holds invalid book data and the load is not tolerant
+     */
+    private boolean ingestFile(Path libraryFile, LoadMode mode, boolean tolerant) {
+        Quarantine quarantine = tolerant ? new Quarantine(libraryFile) : null;
+        int[] added = { 0 };
+
+        // rows are merged as they are parsed so the whole file is never held in memory
+        Consumer<BookEntry> merger = entry -> {
+            if (mergeEntry(entry)) {
+                added[0]++;
+            }
+        };
+
+        useStorageOf(mode);
+
+        boolean success;
+        switch (Compression.of(libraryFile) == Compression.NONE ? mode : LoadMode.STREAM) {
+            case MAPPED:
+            case COLUMNAR:
+            case OFFHEAP:
+                MappedBookParser mappedParser = new MappedBookParser(authorDictionary);
+                mappedParser.setQuarantine(quarantine);
+                success = mappedParser.parseFile(libraryFile, merger);
+                break;
+            case PARALLEL:
+                // ranges are parsed concurrently, so rows are merged once all of them are back in file order
+                ParallelBookParser parallelParser = new ParallelBookParser(ForkJoinPool.commonPool(), authorDictionary);
+                parallelParser.setQuarantine(quarantine);
+                List<BookEntry> loaded = parallelParser.parseFile(libraryFile);
+                success = loaded != null;
+                if (success) {
+                    added[0] = mergeEntries(loaded);
+                }
+                break;
+            case LAZY:
+                added[0] = loadLazily(libraryFile, quarantine);
+                success = added[0] >= 0;
+                break;
+            case FOLLOW:
+                added[0] = followFile(libraryFile, quarantine);
+                success = added[0] >= 0;
+                if (success && tolerant) {
+                    tolerantFollowedFiles.add(libraryFile.toAbsolutePath().normalize());
+                } else if (success) {
+                    tolerantFollowedFiles.remove(libraryFile.toAbsolutePath().normalize());
+                }
+                break;
+            case STREAM:
+                LibraryFileLoader loader = new LibraryFileLoader(authorDictionary);
+                loader.setQuarantine(quarantine);
+                success = loader.streamFileContent(libraryFile, merger);
+                break;
+            default:
+                throw new IllegalArgumentException("Load mode not supported: " + mode);
+        }
 
         if (success) {
-            List<BookEntry> loaded = loader.parseFileContent();
-            int added = mergeEntries(loaded);
-            System.out.println(added + " new book entries added.");
+            System.out.println(added[0] + " new book entries added.");
         } else {
             System.err.println("ERROR: Loading book data failed for file: " + libraryFile);
         }
+        reportQuarantine(quarantine);
 
         return success;
     }
 
+    /**
+     * Write the rows rejected by a tolerant load to the quarantine file and
+     * report their number.
+     *
+     * @param quarantine quarantine holding the rejected rows or null if the load was not tolerant
+     */
+    private void reportQuarantine(Quarantine quarantine) {
+        if (quarantine == null || quarantine.size() == 0) {
+            return;
+        }
+
+        try {
+            int rejected = quarantine.write();
+            System.out.println(rejected + " invalid rows skipped and written to: " + quarantine.getQuarantineFile());
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Writing quarantine file failed: " + quarantine.getQuarantineFile() + ": " + e);
+        }
+    }
+
+    /**
+     * Initiate book data loading for all files of the given directory whose
+     * names match the given glob pattern, e.g. "*.csv".
+     *
+     * The matching files are read and parsed concurrently on a bounded number
+     * of threads. All parsed rows are merged once afterwards in file name order,
+     * so duplicates are detected across the whole batch. Lazy and followed files
+     * keep state per file and are therefore loaded one after another.
+     *
+     * @param directory directory holding the book data files
+     * @param glob pattern the file names have to match
+     * @param mode parser backend used to read the files
+     * @param tolerant true to quarantine invalid rows of each file instead of failing its load
+     * @return true if all matching files were loaded successfully, false otherwise
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public boolean loadFiles(Path directory, String glob, LoadMode mode, boolean tolerant) {
+        Objects.requireNonNull(directory, "Given directory must not be null.");
+        Objects.requireNonNull(glob, "Given glob pattern must not be null.");
+        Objects.requireNonNull(mode, "Given load mode must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            return ingestFiles(directory, glob, mode, tolerant);
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Load all matching book data files while holding the write lock.
+     *
+     * @param directory directory holding the book data files
+     * @param glob pattern the file names have to match
+     * @param mode parser backend used to read the files
+     * @param tolerant true to quarantine invalid rows of each file instead of failing its load
+     * @return true if all matching files were loaded successfully, false otherwise
+     */
+    private boolean ingestFiles(Path directory, String glob, LoadMode mode, boolean tolerant) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException | IllegalArgumentException | SecurityException e) {
+            System.err.println("ERROR: Listing book data files failed for: " + directory.resolve(glob) + ": " + e);
+            return false;
+        }
+        if (files.isEmpty()) {
+            System.err.println("ERROR: No book data files found for: " + directory.resolve(glob));
+            return false;
+        }
+        Collections.sort(files);
+
+        useStorageOf(mode);
+        if (mode == LoadMode.LAZY || mode == LoadMode.FOLLOW) {
+            boolean success = true;
+            for (Path file : files) {
+                success &= ingestFile(file, mode, tolerant);
+            }
+            return success;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<List<BookEntry>>> results = new ArrayList<>(files.size());
+            List<Quarantine> quarantines = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Quarantine quarantine = tolerant ? new Quarantine(file) : null;
+                quarantines.add(quarantine);
+                results.add(executor.submit(() -> parseFile(file, mode, quarantine)));
+            }
+
+            boolean success = true;
+            int added = 0;
+            for (int i = 0; i < files.size(); i++) {
+                List<BookEntry> loaded = awaitFile(results.get(i));
+                // releases the parsed rows of each file once they are merged
+                results.set(i, null);
+                if (loaded == null) {
+                    System.err.println("ERROR: Loading book data failed for file: " + files.get(i));
+                    success = false;
+                } else {
+                    added += mergeEntries(loaded);
+                }
+            }
+
+            System.out.println(added + " new book entries added from " + files.size() + " files.");
+            for (Quarantine quarantine : quarantines) {
+                reportQuarantine(quarantine);
+            }
+            return success;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read and parse all rows of a single file without merging them.
+     * Compressed files are always streamed.
+     *
+     * @param libraryFile specified path to book data file
+     * @param mode parser backend used to read the file
+     * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+     * @return books parsed from the file in file order or null if the file could not be read
+     * @throws IllegalArgumentException if a row holds invalid book data and no quarantine is given
+     */
+    private List<BookEntry> parseFile(Path libraryFile, LoadMode mode, Quarantine quarantine) {
+        List<BookEntry> loaded = new ArrayList<>();
+        boolean success;
+
+        if (Compression.of(libraryFile) != Compression.NONE || mode == LoadMode.STREAM) {
+            LibraryFileLoader loader = new LibraryFileLoader(authorDictionary);
+            loader.setQuarantine(quarantine);
+            success = loader.streamFileContent(libraryFile, loaded::add);
+        } else {
+            // files are already parsed concurrently, so each one is mapped as a whole
+            MappedBookParser parser = new MappedBookParser(authorDictionary);
+            parser.setQuarantine(quarantine);
+            success = parser.parseFile(libraryFile, loaded::add);
+        }
+
+        return success ? loaded : null;
+    }
+
+    /**
+     * Wait for a file parsed on another thread.
+     *
+     * @param result pending result of parseFile
+     * @return books parsed from the file or null if the file could not be read or parsed
+     */
+    private List<BookEntry> awaitFile(Future<List<BookEntry>> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            System.err.println("ERROR: Parsing file content failed: " + e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Replace the book data by a ColumnarBookList or an OffHeapBookList
+     * holding the same entries if the given mode loads into one and the
+     * book data is not one already. Files of replaced lazy book data are
+     * closed.
+     *
+     * @param mode mode the next file is loaded with
+     */
+    private void useStorageOf(LoadMode mode) {
+        List<BookEntry> storage;
+        if (mode == LoadMode.COLUMNAR && !(books instanceof ColumnarBookList)) {
+            storage = new ColumnarBookList();
+        } else if (mode == LoadMode.OFFHEAP && !(books instanceof OffHeapBookList)) {
+            storage = new OffHeapBookList();
+        } else {
+            return;
+        }
+
+        compactRows();
+        storage.addAll(books);
+        List<BookEntry> replaced = books;
+        books = storage;
+
+        if (replaced instanceof LazyBookList) {
+            try {
+                ((LazyBookList) replaced).close();
+            } catch (IOException e) {
+                System.err.println("ERROR: Closing lazily loaded files failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Load the given file lazily. Every row is parsed once to validate it and
+     * detect duplicates, but only its location is kept.
+     *
+     * @param libraryFile specified path to book data file
+     * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+     * @return number of book entries added or -1 if the file could not be read
+     */
+    private int loadLazily(Path libraryFile, Quarantine quarantine) {
+        if (!(books instanceof LazyBookList)) {
+            LazyBookList lazyBooks = new LazyBookList(authorDictionary);
+            compactRows();
+            lazyBooks.addAll(books);
+            books = lazyBooks;
+        }
+        LazyBookList lazyBooks = (LazyBookList) books;
+
+        int fileId;
+        try {
+            fileId = lazyBooks.addFile(libraryFile);
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            System.err.println("ERROR: Reading file content failed: " + e);
+            return -1;
+        }
+
+        int[] added = { 0 };
+        MappedBookParser parser = new MappedBookParser(authorDictionary);
+        parser.setQuarantine(quarantine);
+        boolean success = parser.parseFileWithOffsets(libraryFile, (offset, entry) -> {
+            if (lazyBooks.addRow(fileId, offset, entry)) {
+                journalAdded(entry);
+                added[0]++;
+            } else {
+                reportDuplicate(entry);
+            }
+        });
+
+        return success ? added[0] : -1;
+    }
+
+    /**
+     * Ingest all complete rows of the given file which were appended since it
+     * was last read and follow the file from now on. A file read for the first
+     * time is read from its start.
+     *
+     * Rows are expected to be appended only. A file which became shorter is
+     * assumed to be replaced and is read from its start again.
+     *
+     * @param libraryFile specified path to book data file
+     * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+     * @return number of book entries added or -1 if the file could not be read
+     * @throws IllegalArgumentException if an appended row holds invalid book data and no quarantine is given
+     */
+    private int followFile(Path libraryFile, Quarantine quarantine) {
+        Path key = libraryFile.toAbsolutePath().normalize();
+        MappedBookParser parser = new MappedBookParser(authorDictionary);
+        parser.setQuarantine(quarantine);
+        int[] added = { 0 };
+
+        try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Long ingested = followedFiles.get(key);
+            long start = ingested == null || ingested > size ? 0 : ingested;
+            // a row without line break may still be written and is left for the next poll
+            long end = parser.lastLineEnd(channel, start, size);
+            long firstRow = start == 0 ? parser.nextLineStart(channel, 0, end) : start;
+
+            parser.parseRange(channel, firstRow, end, entry -> {
+                if (mergeEntry(entry)) {
+                    added[0]++;
+                }
+            });
+            followedFiles.put(key, end);
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Reading file content failed: " + e);
+            return -1;
+        }
+
+        return added[0];
+    }
+
+    /**
+     * Ingest the rows appended to all followed files since they were last
+     * read. Only the appended bytes are parsed. Files which cannot be read
+     * anymore or which received invalid rows are not followed any longer,
+     * unless they were added in tolerant mode and their invalid rows are
+     * quarantined.
+     *
+     * @return number of book entries added
+     */
+    public int pollFollowedFiles() {
+        long stamp = lock.writeLock();
+        try {
+            return pollFiles();
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Ingest the rows appended to all followed files while holding the write lock.
+     *
+     * @return number of book entries added
+     */
+    private int pollFiles() {
+        int total = 0;
+
+        for (Path file : new ArrayList<>(followedFiles.keySet())) {
+            Quarantine quarantine = tolerantFollowedFiles.contains(file) ? new Quarantine(file) : null;
+            int added;
+            try {
+                added = followFile(file, quarantine);
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: Invalid book data appended to file: " + file + ": " + e);
+                added = -1;
+            }
+
+            if (added < 0) {
+                followedFiles.remove(file);
+                tolerantFollowedFiles.remove(file);
+                System.err.println("ERROR: Stopped following file: " + file);
+            } else if (added > 0) {
+                System.out.println(added + " new book entries added from followed file: " + file);
+                total += added;
+            }
+            reportQuarantine(quarantine);
+        }
+
+        return total;
+    }
+
+    /**
+     * Load all book data of a snapshot written with saveSnapshot.
+     *
+     * Rows of a snapshot were validated and deduplicated when they were saved,
+     * so they are appended in bulk if the library is still empty.
+     *
+     * @param snapshotFile specified path to the snapshot file
+     * @return true if loading was successful, false otherwise
+     * @throws NullPointerException if the given path is null
+     */
+    public boolean loadSnapshot(Path snapshotFile) {
+        Objects.requireNonNull(snapshotFile, "Given file path must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            List<BookEntry> loaded = BinarySnapshot.read(snapshotFile, authorDictionary);
+            int added;
+            if (books.isEmpty()) {
+                books.addAll(loaded);
+                loaded.forEach(this::journalAdded);
+                added = loaded.size();
+            } else {
+                added = mergeEntries(loaded);
+            }
+            System.out.println(added + " new book entries added.");
+            return true;
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Loading snapshot failed for file: " + snapshotFile + ": " + e);
+            return false;
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write all currently loaded book data to a snapshot file. The current
+     * version is written, so writes are not held up while saving.
+     *
+     * @param snapshotFile specified path to the snapshot file
+     * @return true if saving was successful, false otherwise
+     * @throws NullPointerException if the given path is null
+     */
+    public boolean saveSnapshot(Path snapshotFile) {
+        Objects.requireNonNull(snapshotFile, "Given file path must not be null.");
+        List<BookEntry> saved = getCurrentVersion().getBookData();
+
+        try {
+            BinarySnapshot.write(saved, snapshotFile);
+            System.out.println(saved.size() + " book entries saved to: " + snapshotFile);
+            return true;
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Saving snapshot failed for file: " + snapshotFile + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Journal all changes made to the library from now on to the given file,
+     * after recovering the book data journaled to it before. The book data of
+     * the last checkpoint is read from the snapshot next to the journal and
+     * the records written since are replayed, so recovery takes time in
+     * proportion to the number of recent changes. The journal is folded into
+     * its snapshot whenever it holds many records, see checkpoint.
+     *
+     * Recovered books are held in memory, whatever mode their files were
+     * originally added with.
+     *
+     * @param journalFile specified path to the journal file
+     * @return true if the journal was opened successfully, false otherwise
+     * @throws NullPointerException if the given path is null
+     * @throws IllegalStateException if the library already holds books or journals its changes
+     */
+    public boolean openJournal(Path journalFile) {
+        Objects.requireNonNull(journalFile, "Given file path must not be null.");
+
+        long stamp = lock.writeLock();
+        LibraryJournal opened = null;
+        try {
+            if (journal != null || !books.isEmpty()) {
+                throw new IllegalStateException("A journal can only be opened for an empty library without journal.");
+            }
+
+            opened = new LibraryJournal(journalFile);
+            List<BookEntry> recovered = opened.recover(authorDictionary);
+            books.addAll(recovered);
+            journal = opened;
+            System.out.println(recovered.size() + " book entries recovered from journal: " + journalFile);
+            return true;
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Opening journal failed for file: " + journalFile + ": " + e);
+            closeQuietly(opened);
+            return false;
+        } finally {
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write all book data to the snapshot of the journal and empty the
+     * journal, so the next recovery does not replay any record written so
+     * far. This happens by itself once the journal holds many records.
+     *
+     * @return true if the checkpoint was written successfully, false otherwise
+     */
+    public boolean checkpoint() {
+        long stamp = lock.writeLock();
+        try {
+            if (journal == null) {
+                System.err.println("ERROR: No journal opened to checkpoint.");
+                return false;
+            }
+
+            journal.checkpoint(liveBooks());
+            return true;
+        } catch (IOException | SecurityException e) {
+            stopJournaling(e);
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write all pending journal records and stop journaling changes. Does
+     * nothing if no journal is open.
+     */
+    public void closeJournal() {
+        long stamp = lock.writeLock();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Closing journal failed: " + journal + ": " + e);
+            journal = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the book at the given position of the book data. Positions
+     * count the books returned by getBookData, so books removed earlier are
+     * compacted away first.
+     *
+     * @param index position of the book to be removed
+     * @return removed book
+     * @throws IndexOutOfBoundsException if there is no book at the given position
+     */
+    public BookEntry removeBookAt(int index) {
+        long stamp = lock.writeLock();
+        try {
+            compactRows();
+            return removeAt(index);
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the book at the given position of the book data as held,
+     * including removed books, while holding the write lock.
+     *
+     * @param index position of the book to be removed
+     * @return removed book
+     * @throws IndexOutOfBoundsException if there is no book at the given position
+     */
+    private BookEntry removeAt(int index) {
+        BookEntry removed;
+        if (isIndexed()) {
+            removed = books.get(index);
+            int sizeBefore = books.size() - removedCount;
+            markRemoved(index);
+            unindex(RowSet.of(index), Collections.singletonList(removed), sizeBefore);
+            compactIfWasteful();
+        } else {
+            removed = books.remove(index);
+            layout++;
+        }
+        journalRemoved(Collections.singletonList(removed));
+        return removed;
+    }
+
+    /**
+     * Remove all given book instances from the book data. Each book is found
+     * through the ISBN index like by removeBook. Book data creating its
+     * entries on access removes equal books in a single pass instead.
+     *
+     * @param toRemove books to be removed, as returned by the book data or a find method
+     * @return number of books removed
+     * @throws NullPointerException if the given collection is null
+     */
+    public int removeBooks(Collection<BookEntry> toRemove) {
+        Objects.requireNonNull(toRemove, "Given books must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            return removeAll(toRemove);
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove all given books while holding the write lock.
+     *
+     * @param toRemove books to be removed
+     * @return number of books removed
+     */
+    private int removeAll(Collection<BookEntry> toRemove) {
+        if (!isDecodedOnAccess()) {
+            syncIndexes();
+            // each book is looked up at the few positions holding its ISBN, so no other book is visited
+            int[] positions = new int[toRemove.size()];
+            int found = 0;
+            for (BookEntry book : toRemove) {
+                int position = positionOf(book);
+                if (position >= 0) {
+                    positions[found++] = position;
+                }
+            }
+            return removePositions(RowSet.of(Arrays.copyOf(positions, found)));
+        }
+
+        Set<BookEntry> instances = new HashSet<>(toRemove);
+        return removeWhere(instances::contains);
+    }
+
+    /**
+     * Remove all books written by the given author. The author index holds
+     * the positions of the books, so they are marked as removed as they are
+     * and no book has to be looked up. Book data creating its entries on
+     * access removes the books of the author in a single pass instead.
+     *
+     * @param author author whose books are to be removed
+     * @return number of books removed
+     * @throws NullPointerException if the given author is null
+     */
+    public int removeByAuthor(String author) {
+        Objects.requireNonNull(author, "Given author must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            if (isDecodedOnAccess()) {
+                return removeWhere(book -> book.hasAuthor(author));
+            }
+
+            syncIndexes();
+            return removePositions(authorIndex.get(author));
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove all books matching the given condition from book data creating
+     * its entries on access in a single pass while holding the write lock.
+     *
+     * @param condition condition the books to be removed meet
+     * @return number of books removed
+     */
+    private int removeWhere(Predicate<BookEntry> condition) {
+        List<BookEntry> removed = new ArrayList<>();
+        books.removeIf(book -> condition.test(book) && removed.add(book));
+
+        if (!removed.isEmpty()) {
+            journalRemoved(removed);
+            layout++;
+        }
+        return removed.size();
+    }
+
+    /**
+     * Remove the books at the given rows of a version of the book data. If
+     * the version is still current, its rows are the positions of the books
+     * held, so they are marked as removed as they are and no book has to be
+     * looked up. Otherwise the books at the given rows are removed like by
+     * removeBooks.
+     *
+     * @param from version the rows were selected from
+     * @param rows rows to be removed, as returned by a find method of the version
+     * @return number of books removed
+     * @throws NullPointerException if any of the given parameters are null
+     * @throws IndexOutOfBoundsException if any row is not part of the given version
+     */
+    public int removeRows(LibraryVersion from, RowSet rows) {
+        Objects.requireNonNull(from, "Given version must not be null.");
+        Objects.requireNonNull(rows, "Given rows must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            if (from != version || !isIndexed()) {
+                return removeAll(from.getBooks(rows));
+            }
+            for (int row : rows.toArray()) {
+                if (row >= books.size() || removedRows.get(row)) {
+                    throw new IndexOutOfBoundsException("Given rows must be part of the given version.");
+                }
+            }
+            return removePositions(rows);
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Mark the books at the given positions as removed and remove them from
+     * all indexes while holding the write lock.
+     *
+     * @param positions positions of books not marked as removed yet
+     * @return number of books removed
+     */
+    private int removePositions(RowSet positions) {
+        if (positions.isEmpty()) {
+            return 0;
+        }
+
+        int sizeBefore = books.size() - removedCount;
+        List<BookEntry> removed = new ArrayList<>(positions.size());
+        positions.forEach(position -> {
+            removed.add(books.get(position));
+            markRemoved(position);
+        });
+        unindex(positions, removed, sizeBefore);
+        compactIfWasteful();
+
+        journalRemoved(removed);
+        return removed.size();
+    }
+
+    /**
+     * Remove books which were just marked as removed from all indexes and
+     * clear their positions, so versions taken from now on do not hold them.
+     * Versions taken before still do, as the book data copies a chunk before
+     * it changes it.
+     *
+     * @param positions positions of the books marked as removed
+     * @param removed books marked as removed
+     * @param sizeBefore number of books not removed before
+     */
+    private void unindex(RowSet positions, List<BookEntry> removed, int sizeBefore) {
+        // unless the book data held duplicates, no equal entry remains at another position
+        boolean heldDuplicates = bookSet.size() != sizeBefore;
+
+        isbnIndex.removeAll(books, positions);
+        titleIndex.removeAll(books, positions);
+        authorIndex.removeAll(books, positions);
+        positions.forEach(position -> books.set(position, null));
+
+        for (BookEntry book : removed) {
+            if (!heldDuplicates || !isStillIndexed(book)) {
+                bookSet.remove(book);
+            }
+        }
+    }
+
+    /**
+     * Does a book equal to the given one remain in the ISBN index? Equal
+     * books share their ISBN, so only the few books holding it are compared.
+     *
+     * @param book book removed from the indexes
+     * @return true if an equal book remains
+     */
+    private boolean isStillIndexed(BookEntry book) {
+        for (int position : isbnIndex.get(book.getISBN()).toArray()) {
+            if (books.get(position).equals(book)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the position of the given book instance. Only the positions
+     * holding its ISBN are compared, which are few, so the position is found
+     * in constant time. The indexes must be in sync.
+     *
+     * @param book book to look for
+     * @return position of the book or -1 if it is not part of the book data
+     */
+    private int positionOf(BookEntry book) {
+        for (int position : isbnIndex.get(book.getISBN()).toArray()) {
+            if (books.get(position) == book) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find all books written by the given author. Answered from an index
+     * unless the book data creates its entries on access.
+     *
+     * @param author author to look for
+     * @return books listing exactly the given author in the order they were added,
+     * an empty list if there are none
+     * @throws NullPointerException if the given author is null
+     */
+    public List<BookEntry> findByAuthor(String author) {
+        Objects.requireNonNull(author, "Given author must not be null.");
+
+        return query(current -> current.findByAuthor(author), () -> {
+            if (books instanceof ColumnarBookList) {
+                ColumnarBookList columns = (ColumnarBookList) books;
+                return columns.select(row -> columns.hasAuthor(row, author));
+            }
+            return scanBooks(book -> book.hasAuthor(author));
+        });
+    }
+
+    /**
+     * Get the names of all authors of the loaded books.
+     *
+     * @return distinct author names in no particular order
+     */
+    public List<String> getAuthorNames() {
+        return query(LibraryVersion::getAuthorNames, () -> {
+            if (books instanceof ColumnarBookList) {
+                return ((ColumnarBookList) books).getAuthorNames();
+            }
+            Set<String> authors = new HashSet<>();
+            for (BookEntry book : books) {
+                authors.addAll(book.getAuthorList());
+            }
+            return new ArrayList<>(authors);
+        });
+    }
+
+    /**
+     * Find all books with the given ISBN. Answered from an index unless the
+     * book data creates its entries on access.
+     *
+     * @param isbn ISBN to look for
+     * @return books with exactly the given ISBN in the order they were added,
+     * an empty list if there are none
+     * @throws NullPointerException if the given ISBN is null
+     */
+    public List<BookEntry> findByISBN(String isbn) {
+        Objects.requireNonNull(isbn, "Given ISBN must not be null.");
+
+        return query(current -> current.findByISBN(isbn), () -> {
+            if (books instanceof ColumnarBookList) {
+                return ((ColumnarBookList) books).selectByISBN(isbn);
+            }
+            return scanBooks(book -> book.getISBN().equals(isbn));
+        });
+    }
+
+    /**
+     * Find all books with the given title, ignoring case. Answered from an
+     * index unless the book data creates its entries on access.
+     *
+     * @param title title to look for
+     * @return books with the given title in any case in the order they were added,
+     * an empty list if there are none
+     * @throws NullPointerException if the given title is null
+     */
+    public List<BookEntry> findByTitleIgnoreCase(String title) {
+        Objects.requireNonNull(title, "Given title must not be null.");
+        String foldedTitle = foldTitle(title);
+
+        return query(current -> current.findByTitleIgnoreCase(title), () -> {
+            if (books instanceof ColumnarBookList) {
+                ColumnarBookList columns = (ColumnarBookList) books;
+                return columns.select(row -> foldTitle(columns.getTitle(row)).equals(foldedTitle));
+            }
+            return scanBooks(book -> foldTitle(book.getTitle()).equals(foldedTitle));
+        });
+    }
+
+    /**
+     * Remove the given book instance from the book data. The book is found
+     * at one of the positions the ISBN index holds for its ISBN and marked as
+     * removed there, so no other book is visited. Book data creating its
+     * entries on access removes an equal book instead.
+     *
+     * @param book book to be removed, as returned by the book data or a find method
+     * @return true if the book was removed, false if it is not part of the book data
+     * @throws NullPointerException if the given book is null
+     */
+    public boolean removeBook(BookEntry book) {
+        Objects.requireNonNull(book, "Given book must not be null.");
+
+        long stamp = lock.writeLock();
+        try {
+            if (isDecodedOnAccess()) {
+                int index = books.indexOf(book);
+                if (index >= 0) {
+                    removeAt(index);
+                }
+                return index >= 0;
+            }
+
+            syncIndexes();
+            int position = positionOf(book);
+            if (position >= 0) {
+                removeAt(position);
+            }
+            return position >= 0;
+        } finally {
+            commitJournal();
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run a query against the index snapshots of the current version. The
+     * version is read optimistically, so lookups neither wait for each other
+     * nor write to the lock, and the result is kept as long as no write
+     * started meanwhile. Otherwise the version is read again under the read
+     * lock, which waits for the write in progress. Book data which is
+     * decoded on access is queried under the write lock instead, as creating
+     * entries on access changes state, as is book data handed out by
+     * getBookData, whose version is published first.
+     *
+     * @param versionQuery query reading an indexed version only
+     * @param fullQuery query answering from book data which is decoded on access
+     * @param <T> type of the query result
+     * @return result of the query
+     */
+    private <T> T query(Function<LibraryVersion, T> versionQuery, Supplier<T> fullQuery) {
+        long stamp = lock.tryOptimisticRead();
+        LibraryVersion current = version;
+        if (stamp != 0 && current != null && current.isIndexed()) {
+            T result = versionQuery.apply(current);
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            current = version;
+            if (current != null && current.isIndexed()) {
+                return versionQuery.apply(current);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        stamp = lock.writeLock();
+        try {
+            if (isDecodedOnAccess()) {
+                return fullQuery.get();
+            }
+            publish();
+            return versionQuery.apply(version);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Compact removed books away, so that they no longer take up memory
+     * and the positions of the book data count the remaining books only.
+     * This happens by itself once removed books make up more than a
+     * quarter of the book data.
+     */
+    public void compact() {
+        long stamp = lock.writeLock();
+        try {
+            compactRows();
+        } finally {
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Mark the book at the given position as removed.
+     *
+     * @param index position of a book not removed yet
+     */
+    private void markRemoved(int index) {
+        removedRows.set(index);
+        removedCount++;
+    }
+
+    /** Compact removed books away once they make up too much of the book data. */
+    private void compactIfWasteful() {
+        if (removedCount * COMPACTION_RATIO > books.size()) {
+            compactRows();
+        }
+    }
+
+    /**
+     * Move all books not removed to the front of the book data in a single
+     * pass and drop the rest. The positions held by the indexes are moved
+     * along, so they stay in sync.
+     */
+    private void compactRows() {
+        if (removedCount == 0) {
+            return;
+        }
+        layout++;
+
+        boolean inSync = areIndexesInSync();
+        int[] newPositions = inSync ? new int[books.size()] : null;
+        int kept = 0;
+        for (int i = 0; i < books.size(); i++) {
+            if (!removedRows.get(i)) {
+                if (newPositions != null) {
+                    newPositions[i] = kept;
+                }
+                // books before the first removed one stay where they are, so versions keep sharing their chunks
+                if (kept != i) {
+                    books.set(kept, books.get(i));
+                }
+                kept++;
+            }
+        }
+        books.subList(kept, books.size()).clear();
+        removedRows.clear();
+        removedCount = 0;
+
+        if (inSync) {
+            isbnIndex.remap(newPositions);
+            titleIndex.remap(newPositions);
+            authorIndex.remap(newPositions);
+            indexedSize = books.size();
+        }
+    }
+
+    /**
+     * Take a snapshot of book data creating its entries on access, which
+     * later changes of the book data do not affect.
+     *
+     * @return unmodifiable snapshot of the book data
+     */
+    private List<BookEntry> snapshotBooks() {
+        if (books instanceof LazyBookList) {
+            return ((LazyBookList) books).snapshot();
+        }
+        if (books instanceof ColumnarBookList) {
+            return ((ColumnarBookList) books).snapshot();
+        }
+        return ((OffHeapBookList) books).snapshot();
+    }
+
+    /**
+     * Get the books not removed without changing the book data.
+     *
+     * @return the book data itself if nothing is marked as removed, a copy of the remaining books otherwise
+     */
+    private List<BookEntry> liveBooks() {
+        if (removedCount == 0) {
+            return books;
+        }
+
+        List<BookEntry> live = new ArrayList<>(books.size() - removedCount);
+        for (int i = 0; i < books.size(); i++) {
+            if (!removedRows.get(i)) {
+                live.add(books.get(i));
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Find all books matching the given condition by visiting every book.
+     *
+     * @param condition condition the books have to meet
+     * @return matching books in book data order
+     */
+    private List<BookEntry> scanBooks(Predicate<BookEntry> condition) {
+        List<BookEntry> found = new ArrayList<>();
+        for (BookEntry book : books) {
+            if (condition.test(book)) {
+                found.add(book);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Fold the case of a title so that titles differing only in case share a key.
+     *
+     * @param title title to be folded
+     * @return case-folded title
+     */
+    static String foldTitle(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Merge the list of book entries with the
      * entries already loaded.
      * 
-     * Duplicate entries will be discarded (This requires .equals to be
-     * implemented for BookEntry).
+     * Duplicate entries will be discarded (This requires .equals and .hashCode
+     * to be implemented for BookEntry).
      * 
      * @param loaded list of book entries to be merged with data already loaded
      * @return number of book entries added to the library
@@ -61,13 +1423,175 @@ public class LibraryData {
     private int mergeEntries(List<BookEntry> loaded) {
         int count = 0;
         for (BookEntry entry : loaded) {
-            if (!books.contains(entry)) {
-                books.add(entry);
+            if (mergeEntry(entry)) {
                 count++;
-            } else {
-                System.out.println("Duplicate entry found for book: " + entry);
             }
         }
         return count;
     }
+
+    /**
+     * Merge a single book entry with the entries already loaded.
+     *
+     * @param entry book entry to be merged with data already loaded
+     * @return true if the entry was added, false if it is a duplicate
+     */
+    private boolean mergeEntry(BookEntry entry) {
+        boolean added;
+        if (isDecodedOnAccess()) {
+            added = !books.contains(entry) && books.add(entry);
+        } else {
+            syncIndexes();
+            added = bookSet.add(entry);
+            if (added) {
+                books.add(entry);
+                isbnIndex.add(entry, books.size() - 1);
+                titleIndex.add(entry, books.size() - 1);
+                authorIndex.add(entry, books.size() - 1);
+                indexedSize = books.size();
+            }
+        }
+
+        if (added) {
+            journalAdded(entry);
+        } else {
+            reportDuplicate(entry);
+        }
+        return added;
+    }
+
+    /** Rebuild all indexes if the book data was changed without going through this class. */
+    private void syncIndexes() {
+        if (!areIndexesInSync()) {
+            compactRows();
+            bookSet = new HashSet<>(books);
+            isbnIndex = BookIndex.byKey(BookEntry::getISBN, books);
+            titleIndex = BookIndex.byKey(book -> foldTitle(book.getTitle()), books);
+            authorIndex = BookIndex.byAuthors(books);
+            indexedBooks = books;
+            indexedSize = books.size();
+        }
+    }
+
+    /**
+     * Does the book data create a new entry whenever one is requested? Such
+     * book data is not indexed, as an index would keep all entries alive and
+     * could not find them again by instance.
+     *
+     * @return true if the books were loaded lazily, into columns or off the heap
+     */
+    private boolean isDecodedOnAccess() {
+        return books instanceof LazyBookList || books instanceof ColumnarBookList
+                || books instanceof OffHeapBookList;
+    }
+
+    /**
+     * Can queries be answered from the indexes as they are?
+     *
+     * @return true if the book data is indexed and the indexes are in sync
+     */
+    private boolean isIndexed() {
+        return !isDecodedOnAccess() && areIndexesInSync();
+    }
+
+    /**
+     * Do the indexes still hold exactly the loaded books?
+     *
+     * @return true if the indexes were built for the current book data and
+     * no book was added or removed elsewhere since
+     */
+    private boolean areIndexesInSync() {
+        return bookSet != null && indexedBooks == books && indexedSize == books.size();
+    }
+
+    /**
+     * Append a record of an added book to the journal, if there is one.
+     *
+     * @param book book just added
+     */
+    private void journalAdded(BookEntry book) {
+        if (journal != null) {
+            try {
+                journal.logAdded(book);
+            } catch (IOException e) {
+                stopJournaling(e);
+            }
+        }
+    }
+
+    /**
+     * Append records of removed books to the journal, if there is one.
+     *
+     * @param removed books just removed
+     */
+    private void journalRemoved(List<BookEntry> removed) {
+        if (journal != null) {
+            try {
+                for (BookEntry book : removed) {
+                    journal.logRemoved(book);
+                }
+            } catch (IOException e) {
+                stopJournaling(e);
+            }
+        }
+    }
+
+    /**
+     * Write the records appended by a write with a single sync and fold the
+     * journal into its snapshot once it holds many records. Called once at
+     * the end of every write, so all changes of a command share one sync.
+     */
+    private void commitJournal() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.commit();
+            if (journal.getRecordCount() >= CHECKPOINT_RECORDS) {
+                journal.checkpoint(liveBooks());
+            }
+        } catch (IOException | SecurityException e) {
+            stopJournaling(e);
+        }
+    }
+
+    /**
+     * Stop journaling after the journal could not be written, as later
+     * records would not be recovered correctly without the missing ones.
+     *
+     * @param cause failure writing the journal
+     */
+    private void stopJournaling(Exception cause) {
+        System.err.println("ERROR: Writing journal failed: " + journal + ": " + cause);
+        System.err.println("ERROR: Stopped journaling changes.");
+        closeQuietly(journal);
+        journal = null;
+    }
+
+    /**
+     * Close a journal which is given up, ignoring any failure.
+     *
+     * @param abandoned journal to be closed or null
+     */
+    private static void closeQuietly(LibraryJournal abandoned) {
+        if (abandoned == null) {
+            return;
+        }
+
+        try {
+            abandoned.close();
+        } catch (IOException e) {
+            // the journal is given up already, so there is nothing left to do
+        }
+    }
+
+    /**
+     * Report a book entry which was not added as it is a duplicate.
+     *
+     * @param entry duplicate book entry
+     */
+    private void reportDuplicate(BookEntry entry) {
+        System.out.println("Duplicate entry found for book: " + entry);
+    }
 }
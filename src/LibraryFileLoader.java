@@ -1,10 +1,15 @@
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.lang.Float;
 
 /** 
@@ -25,9 +30,38 @@ public class LibraryFileLoader {
      */
     private List<String> fileContent;
 
+    /** Dictionary providing the shared instances of author names. */
+    private final AuthorDictionary authorDictionary;
+
+    /** Quarantine receiving invalid rows or null if invalid rows fail the load. */
+    private Quarantine quarantine;
+
     /** Create a new loader. No file content has been loaded yet. */
     public LibraryFileLoader() { 
+        this(new AuthorDictionary());
+    }
+
+    /**
+     * Create a new loader sharing author names through the given dictionary.
+     * No file content has been loaded yet.
+     *
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @throws NullPointerException if the given dictionary is null
+     */
+    public LibraryFileLoader(AuthorDictionary authorDictionary) {
+        Objects.requireNonNull(authorDictionary, "Given author dictionary must not be null.");
         fileContent = null;
+        this.authorDictionary = authorDictionary;
+    }
+
+    /**
+     * Hand invalid rows read by streamFileContent to the given quarantine
+     * and carry on with the next row instead of failing the load.
+     *
+     * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+     */
+    public void setQuarantine(Quarantine quarantine) {
+        this.quarantine = quarantine;
     }
 
     /**
@@ -55,6 +89,58 @@ public class LibraryFileLoader {
         return success;
     }
 
+    /**
+     * Read, parse and hand over the book data of the specified file
+     * one row at a time.
+     *
+     * Unlike loadFileContent and parseFileContent, neither the raw lines nor
+     * the parsed books are collected, so only a single row is held in memory
+     * at any time. The header line is skipped.
+     *
+     * Compressed files, identified by their ending (see Compression), are
+     * decompressed while they are read.
+     *
+     * @param fileName file path with book data
+     * @param consumer receives each parsed book in file order
+     * @return true if book data could be read successfully, false otherwise
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public boolean streamFileContent(Path fileName, Consumer<BookEntry> consumer) {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        Objects.requireNonNull(consumer, "Given consumer must not be null.");
+        boolean success = false;
+
+        try (InputStream in = Files.newInputStream(fileName);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        Compression.of(fileName).decompress(in), StandardCharsets.UTF_8))) {
+            // skips the header line
+            String line = reader.readLine();
+            long lineNumber = 1;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                BookEntry book = null;
+                try {
+                    book = parseLine(line);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    if (quarantine == null) {
+                        throw e;
+                    }
+                    quarantine.rejectLine(lineNumber, line, e);
+                }
+
+                if (book != null) {
+                    consumer.accept(book);
+                }
+            }
+            success = true;
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Reading file content failed: " + e);
+        }
+
+        return success;
+    }
+
     /**
      * Has file content been loaded already?
      * @return true if file content has been loaded already.
@@ -71,47 +157,51 @@ public class LibraryFileLoader {
      * @throws UnsupportedOperationException Not implemented yet!
      */
     public List<BookEntry> parseFileContent() {
-        List<BookEntry> bookEntries = new ArrayList<BookEntry>();
-        String pattern = ",";
-        int index = 0;
-
         if (!contentLoaded()) {
             System.err.println("ERROR: No content loaded before parsing.");
             return Collections.emptyList();
 
         } else {
+            List<BookEntry> bookEntries = new ArrayList<BookEntry>(Math.max(fileContent.size() - 1, 0));
 
-            fileContent.remove(index);
-
-            for (String str : fileContent) {
-                String[] attributes = str.split(pattern);
-                String title = attributes[0];
-                String authorString = attributes[1];
-                float rating = Float.parseFloat(attributes[2]);
-                String ISBN = attributes[3];
-                int pages = Integer.parseInt(attributes[4]);
-                String[] authorArray = splitAuthors(authorString);
-
-                BookEntry book = new BookEntry(title, authorArray, rating, ISBN, pages);
-
+            // starts after the header line instead of removing it, which would shift the whole list
+            for (int i = 1; i < fileContent.size(); i++) {
                 //adds book object to book entries list
-                bookEntries.add(book);
-
+                bookEntries.add(parseLine(fileContent.get(i)));
             }
             return bookEntries;
         }
 
+    }
 
+    /**
+     * Parses a single line of book data into a book entry.
+     *
+     * @param line line of book data without the line break.
+     * @return book entry holding the values of the line.
+     * @throws IllegalArgumentException if the line holds invalid book data.
+     */
+    private BookEntry parseLine(String line) {
+        String[] attributes = line.split(",");
+        String title = attributes[0];
+        String authorString = attributes[1];
+        float rating = Float.parseFloat(attributes[2]);
+        String ISBN = attributes[3];
+        int pages = Integer.parseInt(attributes[4]);
+        String[] authorArray = splitAuthors(authorString);
+
+        return new BookEntry(title, authorArray, rating, ISBN, pages);
     }
 
     /**
      * Splits the author string into separate values and creates an array of them.
+     * Each value is replaced by its shared instance from the author dictionary.
      *
      * @return array filled with book authors.
      */
     private String[] splitAuthors(String authorString) {
         String[] array = authorString.split("-");
-        return array;
+        return authorDictionary.canonicaliseAll(array);
     }
 
 }
@@ -1,8 +1,13 @@
 import org.junit.Test;
 import org.junit.jupiter.api.DynamicTest;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -47,4 +52,144 @@ public class LibraryFileLoaderBasicTest extends LibraryFileLoaderTest {
             intercept.stdCaptureStop();
         }
     }
+
+    // ------------------------- check parser parity --------------------
+
+    @Test
+    public void testMappedParserMatchesLoader() throws IOException {
+        String content = DATA_HEADER + "\r\n"
+                + DATA_SAMPLE1 + "\r\n"
+                + "Dashes only,---,3.5,112,10\r\n"
+                + "Single dash,-,3.5,113,10\r\n"
+                + "Trailing dashes,Author A-Author B--,2.0,114,20\r\n"
+                + "Leading dash,-Author A,2.0,115,20\r\n"
+                + "Inner empty author,Author A--Author B,2.0,116,20\r\n"
+                + "No authors,,1.0,117,30\r\n"
+                + "Exponent,Author C,4e0,118,40\r\n"
+                + "Plus sign,Author C,+3.25,119,41\r\n"
+                + "Leading point,Author C,.5,120,42\r\n"
+                + "Trailing point,Author C,4.,121,43\r\n"
+                + "Hex float,Author C,0x1p1,122,44\r\n"
+                + "Float suffix,Author C,3.5f,123,45\r\n"
+                + "Long fraction,Author C,4.123456789012345,124,46\r\n"
+                + "Padded rating,Author C, 2.5 ,125,47\r\n"
+                + "Leading zeros,Author C,0000000000004.5,126,48\n"
+                + "Extra column,Author D,1.5,127,49,ignored\r\n"
+                + "Last row,Author E,2.25,128,50";
+        Path file = Files.createTempFile("parity", ".csv");
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+            List<BookEntry> loaded = new ArrayList<>();
+            assertTrue("Loading the file is expected to succeed.", testFileLoader.streamFileContent(file, loaded::add));
+            List<BookEntry> mapped = new ArrayList<>();
+            assertTrue("Mapping the file is expected to succeed.", new MappedBookParser().parseFile(file, mapped::add));
+
+            assertEquals("Unexpected amount of books loaded.", 18, loaded.size());
+            assertEquals("Mapped parser expected to find as many books as the loader.", loaded.size(), mapped.size());
+            for (int i = 0; i < loaded.size(); i++) {
+                BookEntry expected = loaded.get(i);
+                BookEntry actual = mapped.get(i);
+                assertEquals("Mapped book differs from loaded book in row " + i + ".", expected, actual);
+                assertArrayEquals("Mapped authors differ from loaded authors in row " + i + ".",
+                        expected.getAuthorList().toArray(), actual.getAuthorList().toArray());
+                assertEquals("Mapped rating differs from loaded rating in row " + i + ".",
+                        Float.floatToIntBits(expected.getRating()), Float.floatToIntBits(actual.getRating()));
+            }
+            assertEquals("Column of dashes expected to hold no authors.", 0, mapped.get(2).getAuthorCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testParallelParserMatchesLoaderAcrossSplitPoints() throws IOException {
+        // rows of varying length, every third ending in CRLF, all with quoted titles, the last without line break
+        StringBuilder content = new StringBuilder(DATA_HEADER).append('\n');
+        int rowCount = 0;
+        while (content.length() < 6 << 20) {
+            content.append(row(rowCount, 70 + rowCount % 90, rowCount % 3 == 0 ? "\r\n" : "\n"));
+            rowCount++;
+        }
+        content.append(row(rowCount, 80, ""));
+
+        // split points as chosen by ParallelBookParser for 4 threads: ranges of at least 1 MiB, at most 4 per thread
+        int start = DATA_HEADER.length() + 1;
+        int rangeCount = Math.min(4 * 4, (content.length() - start) / (1 << 20));
+        int rangeSize = (content.length() - start) / rangeCount;
+        for (int i = 1; i < rangeCount; i++) {
+            placeRowsAround(content, start + i * rangeSize - 1, i % 4, 1_000_000 + 2 * i);
+        }
+
+        Path file = Files.createTempFile("split", ".csv");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+            List<BookEntry> loaded = new ArrayList<>();
+            assertTrue("Loading the file is expected to succeed.", testFileLoader.streamFileContent(file, loaded::add));
+            List<BookEntry> parsed = new ParallelBookParser(pool, new AuthorDictionary()).parseFile(file);
+
+            assertNotNull("Parsing the file in parallel is expected to succeed.", parsed);
+            // every line feed ends the header or a row, and the last row ends without one
+            long expectedRows = content.chars().filter(c -> c == '\n').count();
+            assertEquals("Unexpected amount of books loaded.", expectedRows, loaded.size());
+            assertEquals("Parallel parser expected to find as many books as the loader.", loaded.size(),
+                    parsed.size());
+            for (int i = 0; i < loaded.size(); i++) {
+                assertEquals("Parsed book differs from loaded book in row " + i + ".", loaded.get(i), parsed.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Create a row of book data of the given length with a quoted title.
+     *
+     * @param id number of the row, which makes its values unique
+     * @param length length of the row in bytes including its line break
+     * @param lineBreak line break ending the row, empty for none
+     * @return row of book data
+     */
+    private static String row(int id, int length, String lineBreak) {
+        String head = "\"Title " + id + " ";
+        String tail = "\",Author " + (id % 50) + "-Co Author," + (id % 50) / 10f + ",ISBN" + id + "," + (1 + id % 500)
+                + lineBreak;
+        return head + "x".repeat(length - head.length() - tail.length()) + tail;
+    }
+
+    /**
+     * Rewrite the rows around a split point, keeping the length of the content,
+     * so that the byte at the split point is the line break of a row (case 0),
+     * the carriage return of a row ending in CRLF (case 1), the line feed of a
+     * row ending in CRLF (case 2) or part of a quoted title (case 3).
+     *
+     * @param content book data rows
+     * @param split offset of the byte the split point is placed after
+     * @param splitCase case of the split point
+     * @param id number of the first of the two rows written
+     */
+    private static void placeRowsAround(StringBuilder content, int split, int splitCase, int id) {
+        // from the row before the split point to the second row after it, which leaves room for two rows
+        int regionStart = content.lastIndexOf("\n", content.lastIndexOf("\n", split - 1) - 1) + 1;
+        int regionEnd = content.indexOf("\n", content.indexOf("\n", content.indexOf("\n", split) + 1) + 1) + 1;
+
+        String first;
+        if (splitCase == 0) {
+            first = row(id, split - regionStart + 1, "\n");
+        } else if (splitCase == 1) {
+            first = row(id, split - regionStart + 2, "\r\n");
+        } else if (splitCase == 2) {
+            first = row(id, split - regionStart + 1, "\r\n");
+        } else {
+            first = row(id, split - regionStart + 46, "\n");
+        }
+        String second = row(id + 1, regionEnd - regionStart - first.length(), "\n");
+        content.replace(regionStart, regionEnd, first + second);
+
+        char expected = splitCase == 0 || splitCase == 2 ? '\n' : splitCase == 1 ? '\r' : 'x';
+        assertEquals("Split point not placed as intended.", expected, content.charAt(split));
+    }
 }
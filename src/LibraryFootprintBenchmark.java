@@ -0,0 +1,68 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Reports the memory taken per book when a book data file is loaded into
+ * the library with each storage: book entries on the heap, columns and
+ * rows encoded off the heap. Heap usage is measured after garbage
+ * collection, so it is an estimate which is only as exact as the collector
+ * reports it. Direct memory is counted as taken by the encoded off-heap rows.
+ *
+ * Usage: java LibraryFootprintBenchmark file.csv
+ */
+public final class LibraryFootprintBenchmark {
+
+    /** Load modes measured, one per storage. */
+    private static final LoadMode[] MODES = { LoadMode.STREAM, LoadMode.COLUMNAR, LoadMode.OFFHEAP };
+
+    /** Number of garbage collections requested before heap usage is measured. */
+    private static final int COLLECTIONS = 5;
+
+    /** Hidden constructor, as this class only runs the benchmark. */
+    private LibraryFootprintBenchmark() {
+        throw new UnsupportedOperationException("This class should not be instantiated.");
+    }
+
+    /**
+     * Load the given file once per storage and print the bytes taken per book.
+     *
+     * @param args path of the book data file
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("ERROR: Usage: java LibraryFootprintBenchmark file.csv");
+            return;
+        }
+        Path libraryFile = Paths.get(args[0]);
+
+        System.out.println("storage      books  heap bytes/book  off-heap bytes/book");
+        for (LoadMode mode : MODES) {
+            long heapBefore = usedHeap();
+            LibraryData library = new LibraryData();
+            if (!library.loadData(libraryFile, mode)) {
+                return;
+            }
+            List<BookEntry> books = library.getBookData();
+            long heapBytes = usedHeap() - heapBefore;
+            long offHeapBytes = books instanceof OffHeapBookList ? ((OffHeapBookList) books).getEncodedBytes() : 0;
+
+            int count = Math.max(books.size(), 1);
+            System.out.printf("%-8s  %8d  %15d  %19d%n", mode, books.size(), heapBytes / count,
+                    offHeapBytes / count);
+        }
+    }
+
+    /**
+     * Measure the heap in use after collecting garbage.
+     *
+     * @return bytes of the heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,428 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the changes made to a library, so its book data
+ * survives a restart without loading every file again.
+ *
+ * Every added and removed book is appended as a record holding its values,
+ * as books have no identity other than their values. Records are buffered
+ * and written with a single sync per commit, so a command adding a million
+ * books waits for the disk once. A checkpoint writes all book data to a
+ * snapshot next to the journal and empties the journal, so recovery reads
+ * the snapshot and replays the records written since.
+ *
+ * Each record holds its length and a checksum. A record which was only
+ * partly written when the programme stopped ends the journal and is cut off
+ * on recovery.
+ *
+ * This class is not thread-safe.
+ */
+public class LibraryJournal implements Closeable {
+
+    /** File ending identifying a journal. */
+    public static final String FILE_SUFFIX = ".journal";
+
+    /** Record type of an added book. */
+    private static final byte ADDED = 1;
+
+    /** Record type of a removed book. */
+    private static final byte REMOVED = 2;
+
+    /** Bytes preceding the values of a record: its length and type. */
+    private static final int RECORD_HEADER = Integer.BYTES + Byte.BYTES;
+
+    /** Bytes preceding and following the values of a record: its length and checksum. */
+    private static final int RECORD_FRAME = Integer.BYTES + Long.BYTES;
+
+    /** Number of buffered bytes which are written even before the next commit. */
+    private static final int FLUSH_THRESHOLD = 1 << 20;
+
+    /** Initial size of the buffer records are read into on recovery. It grows to hold larger records. */
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /** File the records are appended to. */
+    private final Path journalFile;
+
+    /** Snapshot written by the last checkpoint. */
+    private final Path snapshotFile;
+
+    /** Channel appending to the journal file. */
+    private final FileChannel channel;
+
+    /** Records not yet written to the journal file. */
+    private final ByteArrayOutputStream pending;
+
+    /** Values of the record being encoded. */
+    private final ByteArrayOutputStream record;
+
+    /** Writer encoding the values of a record. */
+    private final DataOutputStream recordOut;
+
+    /** Checksum of the record being encoded. */
+    private final CRC32 checksum;
+
+    /** Number of records appended since the last checkpoint. */
+    private int records;
+
+    /** True if records were written since the last sync. */
+    private boolean unsynced;
+
+    /**
+     * Open the given journal, creating it if it does not exist. Records are
+     * appended after those already written, see recover.
+     *
+     * @param journalFile file path of the journal
+     * @throws IOException if the journal could not be opened
+     * @throws NullPointerException if the given path is null
+     */
+    public LibraryJournal(Path journalFile) throws IOException {
+        Objects.requireNonNull(journalFile, "Given filename must not be null.");
+        this.journalFile = journalFile;
+        this.snapshotFile = Paths.get(journalFile + BinarySnapshot.FILE_SUFFIX);
+        this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        this.pending = new ByteArrayOutputStream();
+        this.record = new ByteArrayOutputStream();
+        this.recordOut = new DataOutputStream(record);
+        this.checksum = new CRC32();
+    }
+
+    /**
+     * Get the snapshot written by checkpoints of this journal.
+     *
+     * @return path of the snapshot file
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Number of records appended since the last checkpoint, including those
+     * found on recovery.
+     *
+     * @return number of records
+     */
+    public int getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Read the book data of the last checkpoint and replay all complete
+     * records written since. A partly written record at the end of the
+     * journal is cut off, so new records follow the last complete one.
+     *
+     * Replaying a record twice leaves the same book data, so a journal
+     * which was not emptied after its checkpoint recovers correctly as well.
+     *
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @return recovered books in the order they were added
+     * @throws IOException if the snapshot or the journal could not be read
+     * @throws NullPointerException if the given dictionary is null
+     */
+    public List<BookEntry> recover(AuthorDictionary authorDictionary) throws IOException {
+        Objects.requireNonNull(authorDictionary, "Given author dictionary must not be null.");
+
+        Set<BookEntry> books = new LinkedHashSet<>();
+        if (Files.exists(snapshotFile)) {
+            books.addAll(BinarySnapshot.read(snapshotFile, authorDictionary));
+        }
+
+        // records are read block by block, so the journal may be larger than any buffer
+        long size = channel.size();
+        ByteBuffer journal = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        journal.flip();
+        long readOffset = 0;
+        long recovered = 0;
+
+        records = 0;
+        while (true) {
+            readOffset = fill(journal, readOffset, RECORD_HEADER + Long.BYTES);
+            if (journal.remaining() < RECORD_HEADER + Long.BYTES) {
+                break;
+            }
+            int length = journal.getInt(journal.position());
+            if (length < Byte.BYTES || length > size - recovered - RECORD_FRAME
+                    || length > Integer.MAX_VALUE - RECORD_FRAME) {
+                break;
+            }
+
+            int recordSize = RECORD_FRAME + length;
+            if (recordSize > journal.capacity()) {
+                journal = ByteBuffer.allocate(recordSize).put(journal).flip();
+            }
+            readOffset = fill(journal, readOffset, recordSize);
+            int start = journal.position();
+            if (journal.remaining() < recordSize) {
+                break;
+            }
+
+            checksum.reset();
+            checksum.update(journal.array(), start + Integer.BYTES, length);
+            if (journal.getLong(start + Integer.BYTES + length) != checksum.getValue()) {
+                break;
+            }
+
+            ByteBuffer values = ByteBuffer.wrap(journal.array(), start + Integer.BYTES, length);
+            byte type = values.get();
+            BookEntry book = readBook(values, authorDictionary);
+            if (type == ADDED) {
+                books.add(book);
+            } else {
+                books.remove(book);
+            }
+            journal.position(start + recordSize);
+            recovered += recordSize;
+            records++;
+        }
+
+        // a record cut off by a crash is dropped, so new records are not appended to it
+        if (recovered < size) {
+            channel.truncate(recovered);
+            channel.force(false);
+        }
+        channel.position(channel.size());
+
+        return new ArrayList<>(books);
+    }
+
+    /**
+     * Append a record of an added book. Records are written by the next
+     * commit at the latest.
+     *
+     * @param book added book
+     * @throws IOException if buffered records could not be written
+     * @throws NullPointerException if the given book is null
+     */
+    public void logAdded(BookEntry book) throws IOException {
+        Objects.requireNonNull(book, "Given book must not be null.");
+        append(ADDED, book);
+    }
+
+    /**
+     * Append a record of a removed book. Records are written by the next
+     * commit at the latest.
+     *
+     * @param book removed book
+     * @throws IOException if buffered records could not be written
+     * @throws NullPointerException if the given book is null
+     */
+    public void logRemoved(BookEntry book) throws IOException {
+        Objects.requireNonNull(book, "Given book must not be null.");
+        append(REMOVED, book);
+    }
+
+    /**
+     * Write all buffered records and wait until the disk holds them. All
+     * records appended since the last commit share a single sync.
+     *
+     * @throws IOException if the records could not be written
+     */
+    public void commit() throws IOException {
+        flush();
+        if (unsynced) {
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Write the given book data to the snapshot and empty the journal. The
+     * snapshot replaces the old one only once it is complete, see
+     * BinarySnapshot.write, so a crash keeps either snapshot intact. The
+     * journal is emptied once the directory holding the replaced snapshot
+     * was synced, so a crash never loses both the journal and the snapshot.
+     *
+     * @param books all book data of the library
+     * @throws IOException if the snapshot could not be written or the journal not be emptied
+     * @throws NullPointerException if the given books are null
+     */
+    public void checkpoint(List<BookEntry> books) throws IOException {
+        Objects.requireNonNull(books, "Given books must not be null.");
+
+        commit();
+        BinarySnapshot.write(books, snapshotFile);
+        // the journal is only emptied once the renamed snapshot is on disk as well
+        syncDirectory(snapshotFile.toAbsolutePath().getParent());
+
+        channel.truncate(0);
+        channel.force(false);
+        records = 0;
+    }
+
+    /**
+     * Commit all buffered records and close the journal.
+     *
+     * @throws IOException if the records could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return journalFile.toString();
+    }
+
+    /**
+     * Encode a record into the buffer of pending records, writing the buffer
+     * once it grew large.
+     *
+     * @param type record type
+     * @param book book the record is about
+     * @throws IOException if buffered records could not be written
+     */
+    private void append(byte type, BookEntry book) throws IOException {
+        record.reset();
+        recordOut.writeByte(type);
+        writeString(book.getTitle());
+        recordOut.writeInt(book.getAuthorCount());
+        for (int i = 0; i < book.getAuthorCount(); i++) {
+            writeString(book.getAuthor(i));
+        }
+        writeString(book.getISBN());
+        recordOut.writeFloat(book.getRating());
+        recordOut.writeInt(book.getPages());
+
+        checksum.reset();
+        checksum.update(record.toByteArray());
+        DataOutputStream out = new DataOutputStream(pending);
+        out.writeInt(record.size());
+        record.writeTo(out);
+        out.writeLong(checksum.getValue());
+        records++;
+
+        if (pending.size() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * Write a string as its UTF-8 byte length followed by the bytes.
+     *
+     * @param value string to be written
+     * @throws IOException never, as records are encoded in memory
+     */
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordOut.writeInt(bytes.length);
+        recordOut.write(bytes);
+    }
+
+    /**
+     * Write all buffered records to the journal file without syncing.
+     *
+     * @throws IOException if the records could not be written
+     */
+    private void flush() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        pending.reset();
+        unsynced = true;
+    }
+
+    /**
+     * Read more of the journal into the given buffer unless it holds the
+     * given number of bytes already. The bytes held are moved to the start
+     * of the buffer, which is then filled up as far as the journal reaches.
+     *
+     * @param buffer buffer holding the bytes read but not yet decoded between position and limit
+     * @param readOffset file offset of the byte following those in the buffer
+     * @param needed number of bytes needed
+     * @return file offset of the byte following those in the buffer after reading
+     * @throws IOException if the journal could not be read
+     */
+    private long fill(ByteBuffer buffer, long readOffset, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return readOffset;
+        }
+
+        long offset = readOffset;
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                break;
+            }
+            offset += read;
+        }
+        buffer.flip();
+        return offset;
+    }
+
+    /**
+     * Sync the given directory, so that files renamed within it are found
+     * after a crash. This is done on a best-effort basis: some platforms,
+     * e.g. Windows, cannot open a directory at all and persist renames
+     * without it, so a directory which cannot be opened or synced is skipped.
+     *
+     * @param directory directory to be synced
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename stays in place, it may just not be on disk yet
+        }
+    }
+
+    /**
+     * Decode the book values of a record.
+     *
+     * @param values buffer positioned after the record type
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @return book entry holding the values
+     */
+    private static BookEntry readBook(ByteBuffer values, AuthorDictionary authorDictionary) {
+        String title = readString(values);
+        String[] authors = new String[values.getInt()];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = authorDictionary.canonicalise(readString(values));
+        }
+        String isbn = readString(values);
+        float rating = values.getFloat();
+        int pages = values.getInt();
+        return new BookEntry(title, authors, rating, isbn, pages);
+    }
+
+    /**
+     * Read a string written by writeString.
+     *
+     * @param values buffer to read from
+     * @return decoded string
+     */
+    private static String readString(ByteBuffer values) {
+        int length = values.getInt();
+        String value = new String(values.array(), values.arrayOffset() + values.position(), length,
+                StandardCharsets.UTF_8);
+        values.position(values.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,173 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LibraryJournalBasicTest {
+
+    private Path journalPath;
+
+    private BookEntry bookA;
+    private BookEntry bookB;
+    private BookEntry bookC;
+
+    @Before
+    public void setup() throws IOException {
+        journalPath = Files.createTempFile("library", LibraryJournal.FILE_SUFFIX);
+        Files.delete(journalPath);
+
+        bookA = new BookEntry("TitleA", new String[] { "AuthorA" }, 3.2f, "ISBNA", 500);
+        bookB = new BookEntry("TitleB", new String[] { "AuthorA", "AuthorB" }, 4.3f, "ISBNB", 400);
+        bookC = new BookEntry("TitleC", new String[] { "AuthorC" }, 1.5f, "ISBNC", 300);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(journalPath.resolveSibling(journalPath.getFileName() + BinarySnapshot.FILE_SUFFIX));
+    }
+
+    // ------------------------- recovery tests --------------------
+
+    @Test
+    public void testRecoverEmptyJournal() {
+        LibraryData library = new LibraryData();
+        assertTrue("Opening a new journal is expected to succeed.", library.openJournal(journalPath));
+        assertTrue("A new journal is expected to recover no books.", library.getBookData().isEmpty());
+        library.closeJournal();
+    }
+
+    @Test
+    public void testRecoverAddedAndRemovedBooks() {
+        LibraryData library = new LibraryData();
+        library.openJournal(journalPath);
+        library.loadSnapshot(writeSnapshot(bookA, bookB, bookC));
+        library.removeBook(library.findByISBN("ISBNB").get(0));
+        library.closeJournal();
+
+        List<BookEntry> expected = new ArrayList<>();
+        expected.add(bookA);
+        expected.add(bookC);
+        assertEquals("Recovered books not as expected.", expected, recover());
+    }
+
+    @Test
+    public void testRecoverAfterCheckpoint() throws IOException {
+        LibraryData library = new LibraryData();
+        library.openJournal(journalPath);
+        library.loadSnapshot(writeSnapshot(bookA, bookB));
+        assertTrue("Checkpoint is expected to succeed.", library.checkpoint());
+        assertEquals("Checkpoint is expected to empty the journal.", 0, Files.size(journalPath));
+
+        library.removeBooks(library.findByAuthor("AuthorA"));
+        library.loadSnapshot(writeSnapshot(bookC));
+        library.closeJournal();
+
+        List<BookEntry> expected = new ArrayList<>();
+        expected.add(bookC);
+        assertEquals("Recovered books not as expected.", expected, recover());
+    }
+
+    @Test
+    public void testSyncDirectoryIsBestEffort() {
+        // stands in for platforms which cannot open a directory, the sync is skipped rather than failing
+        Path missingDirectory = journalPath.resolveSibling(journalPath.getFileName() + ".missing");
+        LibraryJournal.syncDirectory(missingDirectory);
+        assertFalse("Syncing is not expected to create the directory.", Files.exists(missingDirectory));
+    }
+
+    @Test
+    public void testRecoverCutsOffPartialRecord() throws IOException {
+        LibraryData library = new LibraryData();
+        library.openJournal(journalPath);
+        library.loadSnapshot(writeSnapshot(bookA, bookB));
+        library.closeJournal();
+
+        // simulates a crash in the middle of writing the last record
+        long size = Files.size(journalPath);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        List<BookEntry> expected = new ArrayList<>();
+        expected.add(bookA);
+        assertEquals("Only complete records are expected to be recovered.", expected, recover());
+    }
+
+    @Test
+    public void testRecoverJournalLargerThanReadBuffer() throws IOException {
+        // records straddle the blocks the journal is read in, and the long title is larger than a block
+        List<BookEntry> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            expected.add(new BookEntry("Title" + i, new String[] { "Author" + (i % 7) }, 2.5f, "ISBN" + i, i + 1));
+            if (i == 2500) {
+                expected.add(new BookEntry("x".repeat(200_000), new String[] { "AuthorL" }, 3.0f, "ISBNL", 1));
+            }
+        }
+        try (LibraryJournal journal = new LibraryJournal(journalPath)) {
+            for (BookEntry book : expected) {
+                journal.logAdded(book);
+            }
+            journal.logRemoved(expected.get(0));
+            journal.logAdded(bookA);
+        }
+
+        // cuts the last record short, so only the records before it are recovered
+        long size = Files.size(journalPath);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        expected.remove(0);
+
+        try (LibraryJournal journal = new LibraryJournal(journalPath)) {
+            assertEquals("Recovered books not as expected.", expected, journal.recover(new AuthorDictionary()));
+            assertEquals("Unexpected amount of records recovered.", expected.size() + 2, journal.getRecordCount());
+            assertTrue("Partial record expected to be cut off.", Files.size(journalPath) < size - 3);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOpenJournalNonEmptyLibrary() {
+        LibraryData library = new LibraryData();
+        library.loadSnapshot(writeSnapshot(bookA));
+        library.openJournal(journalPath);
+    }
+
+    /**
+     * Recover the books of the journal into a new library.
+     *
+     * @return recovered books
+     */
+    private List<BookEntry> recover() {
+        LibraryData library = new LibraryData();
+        assertTrue("Recovering the journal is expected to succeed.", library.openJournal(journalPath));
+        library.closeJournal();
+        return library.getBookData();
+    }
+
+    /**
+     * Write the given books to a temporary snapshot to be loaded.
+     *
+     * @param books books to be written
+     * @return path of the snapshot
+     */
+    private Path writeSnapshot(BookEntry... books) {
+        try {
+            Path snapshot = Files.createTempFile("books", BinarySnapshot.FILE_SUFFIX);
+            snapshot.toFile().deleteOnExit();
+            BinarySnapshot.write(List.of(books), snapshot);
+            return snapshot;
+        } catch (IOException e) {
+            throw new AssertionError("Writing test snapshot failed: " + e);
+        }
+    }
+}
@@ -0,0 +1,596 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable version of the book data of a library. A version never changes
+ * once it was taken, so it can be read by any number of threads without
+ * locking while the library itself is being changed. Versions share the
+ * unchanged parts of the book data with each other instead of copying it,
+ * see ChunkedBookList. Versions of book data creating its entries on access
+ * read a snapshot of it, so they create entries on access as well instead
+ * of holding every entry.
+ *
+ * Queries select rows as a RowSet, so results can be combined before any
+ * book is looked up. Rows are the positions of the books in the book data
+ * of the library, which removing a book does not move, so a row refers to
+ * the same book in later versions until the library compacts its book
+ * data. The library clears the positions of removed books, so positions
+ * holding no book are not rows of the version.
+ *
+ * Versions of indexed book data share snapshots of the indexes of the
+ * library, so the rows per author are not built per version and the
+ * library answers its lookups from the current version. The
+ * titles and authors in collation order are built on first use, merging
+ * the changes since an earlier version into its order where there is one.
+ */
+public final class LibraryVersion {
+
+    /** Book entries of this version by position, null at positions which are not rows. */
+    private final List<BookEntry> books;
+
+    /** Number of rows. */
+    private final int size;
+
+    /** Number of the layout of the positions, shared by all versions whose positions refer to the same books. */
+    private final int layout;
+
+    /** Rows of the books per ISBN, a snapshot of the index of the library or null if it is not indexed. */
+    private final BookIndex isbnIndex;
+
+    /** Rows of the books per case-folded title, a snapshot of the index of the library or null if it is not indexed. */
+    private final BookIndex titleIndex;
+
+    /** Rows of the books per author, a snapshot of the index of the library or built on first use. */
+    private volatile BookIndex authorIndex;
+
+    /** Keys ordering the titles, shared with the other versions of the library. */
+    private final CollationKeys titleKeys;
+
+    /** Keys ordering the author names, shared with the other versions of the library. */
+    private final CollationKeys authorKeys;
+
+    /** Books at all rows in row order or null if they were not needed yet. */
+    private volatile List<BookEntry> bookData;
+
+    /** Titles of all books in collation order or null if they were not needed yet. */
+    private volatile Order sortedTitles;
+
+    /** Author names in collation order or null if they were not needed yet. */
+    private volatile Order sortedAuthorNames;
+
+    /** Titles of an earlier version in collation order to be merged with the changes since or null. */
+    private volatile Order earlierTitles;
+
+    /** Author names of an earlier version in collation order to be merged with the changes since or null. */
+    private volatile Order earlierAuthorNames;
+
+    /**
+     * Create a version of the given book data.
+     *
+     * @param books book data by position, which never changes
+     * @param size number of positions holding a book
+     * @param layout number of the layout of the positions
+     * @param indexes snapshots of the ISBN, title and author index or null if the book data is not indexed
+     * @param titleKeys keys ordering the titles
+     * @param authorKeys keys ordering the author names
+     */
+    private LibraryVersion(List<BookEntry> books, int size, int layout, BookIndex[] indexes,
+            CollationKeys titleKeys, CollationKeys authorKeys) {
+        this.books = books;
+        this.size = size;
+        this.layout = layout;
+        this.isbnIndex = indexes != null ? indexes[0] : null;
+        this.titleIndex = indexes != null ? indexes[1] : null;
+        this.authorIndex = indexes != null ? indexes[2] : null;
+        this.titleKeys = Objects.requireNonNull(titleKeys, "Given title keys must not be null.");
+        this.authorKeys = Objects.requireNonNull(authorKeys, "Given author keys must not be null.");
+    }
+
+    /**
+     * Get the version of an empty library whose later versions order their
+     * titles and authors with the given keys.
+     *
+     * @param titleKeys keys ordering the titles
+     * @param authorKeys keys ordering the author names
+     * @return version holding no books
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    static LibraryVersion empty(CollationKeys titleKeys, CollationKeys authorKeys) {
+        return new LibraryVersion(Collections.emptyList(), 0, 0, null, titleKeys, authorKeys);
+    }
+
+    /**
+     * Take the version following this one. Nothing is copied, so the given
+     * book data must never change afterwards. The titles and authors in
+     * collation order are derived from those of this version or of an
+     * earlier one if the layout of the positions did not change since.
+     *
+     * @param snapshot book data by position, null at positions of removed books, e.g. a snapshot of a ChunkedBookList
+     * @param bookCount number of positions holding a book
+     * @param positionLayout number of the layout of the positions, changed whenever books moved
+     * @param indexSnapshots snapshots of the ISBN, title and author index of the book data or null if it is
+     * not indexed
+     * @return version reading the given book data
+     * @throws NullPointerException if the given snapshot is null
+     */
+    LibraryVersion next(List<BookEntry> snapshot, int bookCount, int positionLayout, BookIndex[] indexSnapshots) {
+        Objects.requireNonNull(snapshot, "Given snapshot must not be null.");
+
+        LibraryVersion next = new LibraryVersion(snapshot, bookCount, positionLayout, indexSnapshots,
+                titleKeys, authorKeys);
+        Order titles = sortedTitles;
+        next.earlierTitles = titles != null ? titles : earlierTitles;
+        Order authors = sortedAuthorNames;
+        next.earlierAuthorNames = authors != null ? authors : earlierAuthorNames;
+        return next;
+    }
+
+    /**
+     * Get all book entries of this version in row order.
+     *
+     * @return unmodifiable list of the book entries
+     */
+    public List<BookEntry> getBookData() {
+        List<BookEntry> data = bookData;
+        if (data == null) {
+            data = size == books.size() ? books : new Rows(books, size);
+            bookData = data;
+        }
+        return data;
+    }
+
+    /**
+     * Find all books written by the given author.
+     *
+     * @param author author to look for
+     * @return books listing exactly the given author in book data order,
+     * an empty list if there are none
+     * @throws NullPointerException if the given author is null
+     */
+    public List<BookEntry> findByAuthor(String author) {
+        return getBooks(findRowsByAuthor(author));
+    }
+
+    /**
+     * Find the rows of all books written by the given author.
+     *
+     * @param author author to look for
+     * @return rows of the books listing exactly the given author
+     * @throws NullPointerException if the given author is null
+     */
+    public RowSet findRowsByAuthor(String author) {
+        Objects.requireNonNull(author, "Given author must not be null.");
+        return authorIndex().get(author);
+    }
+
+    /**
+     * Find all books with the given ISBN.
+     *
+     * @param isbn ISBN to look for
+     * @return books with exactly the given ISBN in book data order,
+     * an empty list if there are none
+     * @throws NullPointerException if the given ISBN is null
+     */
+    public List<BookEntry> findByISBN(String isbn) {
+        return getBooks(findRowsByISBN(isbn));
+    }
+
+    /**
+     * Find all books with the given title, ignoring case.
+     *
+     * @param title title to look for
+     * @return books with the given title in any case in book data order,
+     * an empty list if there are none
+     * @throws NullPointerException if the given title is null
+     */
+    public List<BookEntry> findByTitleIgnoreCase(String title) {
+        return getBooks(findRowsByTitleIgnoreCase(title));
+    }
+
+    /**
+     * Find the rows of all books with the given ISBN.
+     *
+     * @param isbn ISBN to look for
+     * @return rows of the books with exactly the given ISBN
+     * @throws NullPointerException if the given ISBN is null
+     */
+    public RowSet findRowsByISBN(String isbn) {
+        Objects.requireNonNull(isbn, "Given ISBN must not be null.");
+        if (isbnIndex == null) {
+            return findRows(book -> book.getISBN().equals(isbn));
+        }
+        return isbnIndex.get(isbn);
+    }
+
+    /**
+     * Find the rows of all books with the given title, ignoring case.
+     *
+     * @param title title to look for
+     * @return rows of the books with the given title in any case
+     * @throws NullPointerException if the given title is null
+     */
+    public RowSet findRowsByTitleIgnoreCase(String title) {
+        Objects.requireNonNull(title, "Given title must not be null.");
+        String foldedTitle = LibraryData.foldTitle(title);
+        if (titleIndex == null) {
+            return findRows(book -> LibraryData.foldTitle(book.getTitle()).equals(foldedTitle));
+        }
+        return titleIndex.get(foldedTitle);
+    }
+
+    /**
+     * Find the rows of all books matching the given condition by visiting every book.
+     *
+     * @param condition condition the books have to meet
+     * @return rows of the matching books
+     * @throws NullPointerException if the given condition is null
+     */
+    public RowSet findRows(Predicate<BookEntry> condition) {
+        Objects.requireNonNull(condition, "Given condition must not be null.");
+
+        RowSet.Builder found = new RowSet.Builder();
+        for (int row = 0; row < books.size(); row++) {
+            BookEntry book = books.get(row);
+            if (book != null && condition.test(book)) {
+                found.add(row);
+            }
+        }
+        return found.build();
+    }
+
+    /**
+     * Get the books at the given rows.
+     *
+     * @param rows rows of this version
+     * @return books at the given rows in book data order
+     * @throws NullPointerException if the given rows are null
+     * @throws IndexOutOfBoundsException if any row is not part of this version
+     */
+    public List<BookEntry> getBooks(RowSet rows) {
+        Objects.requireNonNull(rows, "Given rows must not be null.");
+
+        List<BookEntry> found = new ArrayList<>(rows.size());
+        rows.forEach(row -> found.add(book(row)));
+        return found;
+    }
+
+    /**
+     * Get the titles of the books at the given rows, each distinct title
+     * once. Only the books at the given rows are looked up.
+     *
+     * @param rows rows of this version
+     * @return distinct titles in the order of their first row
+     * @throws NullPointerException if the given rows are null
+     * @throws IndexOutOfBoundsException if any row is not part of this version
+     */
+    public List<String> getDistinctTitles(RowSet rows) {
+        Objects.requireNonNull(rows, "Given rows must not be null.");
+
+        if (rows.size() == 1) {
+            return Collections.singletonList(book(rows.first()).getTitle());
+        }
+
+        List<String> titles = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        rows.forEach(row -> {
+            String title = book(row).getTitle();
+            if (seen.add(title)) {
+                titles.add(title);
+            }
+        });
+        return titles;
+    }
+
+    /**
+     * Get the names of all authors of the books of this version.
+     *
+     * @return distinct author names in no particular order
+     */
+    public List<String> getAuthorNames() {
+        return authorIndex().keys();
+    }
+
+    /**
+     * Get the titles of all books in collation order, see CollationKeys.
+     * A title shared by several books is listed once per book.
+     *
+     * @return unmodifiable list of the titles
+     */
+    public List<String> getTitlesInOrder() {
+        Order titles = sortedTitles;
+        if (titles == null) {
+            titles = new Order(orderTitles(), this);
+            sortedTitles = titles;
+            earlierTitles = null;
+        }
+        return titles.view;
+    }
+
+    /**
+     * Get the names of all authors in collation order, see CollationKeys.
+     *
+     * @return unmodifiable list of the distinct author names
+     */
+    public List<String> getAuthorNamesInOrder() {
+        Order authors = sortedAuthorNames;
+        if (authors == null) {
+            authors = new Order(orderAuthorNames(), this);
+            sortedAuthorNames = authors;
+            earlierAuthorNames = null;
+        }
+        return authors.view;
+    }
+
+    /**
+     * Sort the titles of all books, merging the titles added and removed
+     * since an earlier version into its order if there is a suitable one.
+     *
+     * @return titles in collation order
+     */
+    private String[] orderTitles() {
+        Order earlier = earlierTitles;
+        if (earlier != null && earlier.layout == layout) {
+            List<String> removedTitles = new ArrayList<>();
+            List<String> addedTitles = new ArrayList<>();
+            // positions did not move, so books removed since are still held at their positions by the earlier version
+            for (int position : removedSince(earlier)) {
+                removedTitles.add(earlier.books.get(position).getTitle());
+            }
+            for (int row = earlier.books.size(); row < books.size(); row++) {
+                BookEntry book = books.get(row);
+                if (book != null) {
+                    addedTitles.add(book.getTitle());
+                }
+            }
+            if (isWorthMerging(earlier, removedTitles, addedTitles)) {
+                return titleKeys.merge(earlier.strings, removedTitles, addedTitles);
+            }
+        }
+
+        List<String> titles = new ArrayList<>(size);
+        for (BookEntry book : getBookData()) {
+            titles.add(book.getTitle());
+        }
+        return titleKeys.sort(titles);
+    }
+
+    /**
+     * Sort the names of all authors, merging the authors added and removed
+     * since an earlier version into its order if there is a suitable one.
+     *
+     * @return distinct author names in collation order
+     */
+    private String[] orderAuthorNames() {
+        BookIndex index = authorIndex();
+        Order earlier = earlierAuthorNames;
+        if (earlier != null && earlier.layout == layout) {
+            // authors of removed books are gone once no book is left for them, new authors are those not seen before
+            Set<String> removedAuthors = new HashSet<>();
+            for (int position : removedSince(earlier)) {
+                for (String author : earlier.books.get(position).getAuthorList()) {
+                    if (!index.containsKey(author)) {
+                        removedAuthors.add(author);
+                    }
+                }
+            }
+            Set<String> addedAuthors = new HashSet<>();
+            for (int row = earlier.books.size(); row < books.size(); row++) {
+                BookEntry book = books.get(row);
+                for (String author : book != null ? book.getAuthorList() : Collections.<String>emptyList()) {
+                    if (!addedAuthors.contains(author) && !authorKeys.contains(earlier.strings, author)) {
+                        addedAuthors.add(author);
+                    }
+                }
+            }
+            if (isWorthMerging(earlier, removedAuthors, addedAuthors)) {
+                return authorKeys.merge(earlier.strings, removedAuthors, addedAuthors);
+            }
+        }
+
+        return authorKeys.sort(index.keys());
+    }
+
+    /**
+     * Get the positions of the books which were rows of the given earlier
+     * version but are not rows of this one.
+     *
+     * @param earlier order of an earlier version of the same layout
+     * @return positions of the books removed since
+     */
+    private List<Integer> removedSince(Order earlier) {
+        List<Integer> positions = new ArrayList<>();
+        for (int position = 0; position < earlier.books.size(); position++) {
+            if (books.get(position) == null && earlier.books.get(position) != null) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Is merging the given changes into an earlier order cheaper than sorting again?
+     *
+     * @param earlier order of an earlier version
+     * @param removedStrings strings removed since
+     * @param addedStrings strings added since
+     * @return true if few strings changed compared to the strings ordered
+     */
+    private static boolean isWorthMerging(Order earlier, Collection<String> removedStrings,
+            Collection<String> addedStrings) {
+        return removedStrings.size() + addedStrings.size() <= earlier.strings.length / 2;
+    }
+
+    /**
+     * Does this version share the indexes of the library, so lookups do not visit every book?
+     *
+     * @return true if the book data of this version is indexed
+     */
+    boolean isIndexed() {
+        return isbnIndex != null;
+    }
+
+    /**
+     * Get the rows per author, building them on first use if this version
+     * does not share the index of the library. Threads racing on first use
+     * may each build equal rows, one of which is kept.
+     *
+     * @return rows of all books per author
+     */
+    private BookIndex authorIndex() {
+        BookIndex index = authorIndex;
+        if (index == null) {
+            // only versions of book data creating its entries on access build their own, which hold no removed books
+            index = BookIndex.byAuthors(books);
+            authorIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the book at the given row.
+     *
+     * @param row row of this version
+     * @return book at the row
+     * @throws IndexOutOfBoundsException if the row is not part of this version
+     */
+    private BookEntry book(int row) {
+        BookEntry book = books.get(row);
+        if (book == null) {
+            throw new IndexOutOfBoundsException("Row " + row + " is not part of this version.");
+        }
+        return book;
+    }
+
+    /** Strings in collation order together with the book data of the version they were ordered for. */
+    private static final class Order {
+
+        /** Strings in collation order. */
+        private final String[] strings;
+
+        /** Unmodifiable view of the strings. */
+        private final List<String> view;
+
+        /** Book entries of the version by position, null at positions which are not rows. */
+        private final List<BookEntry> books;
+
+        /** Number of the layout of the positions of the version. */
+        private final int layout;
+
+        /**
+         * Keep the given order of strings of the given version.
+         *
+         * @param strings strings in collation order
+         * @param version version the strings were ordered for
+         */
+        Order(String[] strings, LibraryVersion version) {
+            this.strings = strings;
+            this.view = Collections.unmodifiableList(Arrays.asList(strings));
+            this.books = version.books;
+            this.layout = version.layout;
+        }
+    }
+
+    /**
+     * Books at the rows of a version holding positions which are not rows,
+     * in row order. A row is found through the number of rows before each
+     * block of positions, which are counted up to the rows requested so far,
+     * so looking at the first rows does not visit all positions and no
+     * positions are copied. Blocks are counted by one thread at a time.
+     */
+    private static final class Rows extends AbstractList<BookEntry> implements RandomAccess {
+
+        /** Number of bits of a position addressing it within its block. */
+        private static final int BLOCK_BITS = 6;
+
+        /** Book entries by position, null at positions which are not rows. */
+        private final List<BookEntry> books;
+
+        /** Number of rows before the positions of each block and of all rows at the end. */
+        private final int[] rowsBefore;
+
+        /** Number of rows. */
+        private final int size;
+
+        /** Number of leading entries of rowsBefore counted so far, at least one. */
+        private volatile int counted;
+
+        /**
+         * Create the rows of the given book data.
+         *
+         * @param books book entries by position, null at positions which are not rows
+         * @param size number of rows
+         */
+        Rows(List<BookEntry> books, int size) {
+            this.books = books;
+            this.rowsBefore = new int[((books.size() + (1 << BLOCK_BITS) - 1) >>> BLOCK_BITS) + 1];
+            this.size = size;
+            this.counted = 1;
+        }
+
+        @Override
+        public BookEntry get(int index) {
+            Objects.checkIndex(index, size);
+
+            int known = counted;
+            if (rowsBefore[known - 1] <= index) {
+                known = countBlocks(index);
+            }
+
+            // the last block holding no more rows before it than the index holds the row
+            int low = 0;
+            int high = known - 2;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (rowsBefore[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            int skipped = index - rowsBefore[low];
+            for (int position = low << BLOCK_BITS; ; position++) {
+                BookEntry book = books.get(position);
+                if (book != null && skipped-- == 0) {
+                    return book;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Count the rows of further blocks until the block holding the given row is counted.
+         *
+         * @param index index of a row
+         * @return number of leading entries of rowsBefore counted
+         */
+        private synchronized int countBlocks(int index) {
+            int known = counted;
+            while (rowsBefore[known - 1] <= index) {
+                int rows = rowsBefore[known - 1];
+                int end = Math.min(known << BLOCK_BITS, books.size());
+                for (int position = (known - 1) << BLOCK_BITS; position < end; position++) {
+                    if (books.get(position) != null) {
+                        rows++;
+                    }
+                }
+                rowsBefore[known++] = rows;
+            }
+            counted = known;
+            return known;
+        }
+    }
+}
@@ -1,4 +1,3 @@
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -19,6 +18,9 @@ public class ListCmd extends LibraryCommand {
     /** Indicator for long list. */
     private static final String LONG = "long";
 
+    /** Number of characters collected before they are printed at once. */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
 
     /**
      * Create the list command and initialise it with
@@ -65,7 +67,8 @@ public class ListCmd extends LibraryCommand {
     public void execute(LibraryData data) {
         Objects.requireNonNull(data, "Given library data must not be null.");
         LibraryData libraryData = data;
-        List <BookEntry> bookData = libraryData.getBookData();
+        // reads an immutable version, so concurrent writes cannot change the listed books
+        List <BookEntry> bookData = libraryData.getCurrentVersion().getBookData();
 
         int listSize = bookData.size();
 
@@ -92,28 +95,19 @@ public class ListCmd extends LibraryCommand {
      * @param bookData book data to be considered for command execution.
      */
     private void printLong(List <BookEntry> bookData) {
-        final String padding = "\n";
+        final String separator = System.lineSeparator();
+        StringBuilder bld = new StringBuilder(OUTPUT_BUFFER_SIZE + 1024);
 
+        // long forms are rendered straight into large blocks, so no string is created or kept per book
         for (int i = 0; i < bookData.size(); i++) {
-            BookEntry book = bookData.get(i);
-            String title = book.getTitle();
-            String[] authors = book.getAuthors();
-            float rating = book.getRating();
-            String ISBN = book.getISBN();
-            int pages = book.getPages();
-
-            //string builder to print long list
-            StringBuilder bld = new StringBuilder();
-            bld.append(title);
-            bld.append(padding).append("by ").append(Arrays.toString(authors).replace("[", "").replace("]", ""));
-            bld.append(padding).append("Rating: ").append(String.format("%.2f",rating));
-            bld.append(padding).append("ISBN: ").append(ISBN);
-            bld.append(padding).append(pages).append(" pages");
-
-            System.out.println(bld.toString());
-            System.out.println("");
+            bookData.get(i).appendLongForm(bld).append(separator).append(separator);
+            if (bld.length() >= OUTPUT_BUFFER_SIZE) {
+                System.out.print(bld);
+                bld.setLength(0);
+            }
         }
-
+        System.out.print(bld);
+        System.out.flush();
     }
 
     /**
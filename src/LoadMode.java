@@ -0,0 +1,10 @@
+/** All available modes for loading book data files. */
+public enum LoadMode {
+    STREAM,
+    MAPPED,
+    PARALLEL,
+    LAZY,
+    FOLLOW,
+    COLUMNAR,
+    OFFHEAP
+}
@@ -0,0 +1,140 @@
+/**
+ * Set of primitive long values based on open addressing with linear probing.
+ *
+ * Compared to a HashSet of Long values no object is allocated per element,
+ * which keeps the footprint at about 16 bytes per element.
+ * The value 0 is reserved and cannot be stored.
+ */
+public class LongHashSet {
+
+    /** Initial number of slots. Always a power of two. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Marker of a free slot. */
+    private static final long FREE = 0;
+
+    /** Slots holding the elements. */
+    private long[] slots;
+
+    /** Number of elements in the set. */
+    private int size;
+
+    /** Create a new and empty set. */
+    public LongHashSet() {
+        slots = new long[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Number of elements in the set.
+     *
+     * @return number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is the given value contained in the set?
+     *
+     * @param value value to look for
+     * @return true if the value is contained in the set
+     */
+    public boolean contains(long value) {
+        return slots[slotOf(value)] == value && value != FREE;
+    }
+
+    /**
+     * Add the given value to the set.
+     *
+     * @param value value to be added
+     * @return true if the value was added, false if it was contained already
+     * @throws IllegalArgumentException if the given value is the reserved value 0
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            throw new IllegalArgumentException("The value 0 cannot be stored.");
+        }
+
+        int slot = slotOf(value);
+        if (slots[slot] == value) {
+            return false;
+        }
+
+        slots[slot] = value;
+        size++;
+        // keeps the load factor at or below one half
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Remove the given value from the set.
+     *
+     * @param value value to be removed
+     * @return true if the value was removed, false if it was not contained
+     */
+    public boolean remove(long value) {
+        int slot = slotOf(value);
+        if (value == FREE || slots[slot] != value) {
+            return false;
+        }
+
+        // shifts back following elements of the probe sequence so that no lookup breaks off early
+        int mask = slots.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (slots[next] != FREE) {
+            int home = mix(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                slots[free] = slots[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[free] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Find the slot holding the given value or the free slot it would be stored in.
+     *
+     * @param value value to look for
+     * @return index of the slot
+     */
+    private int slotOf(long value) {
+        int mask = slots.length - 1;
+        int slot = mix(value) & mask;
+
+        while (slots[slot] != FREE && slots[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Double the number of slots and re-insert all elements. */
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+
+        for (long value : old) {
+            if (value != FREE) {
+                slots[slotOf(value)] = value;
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of the given value so that similar values end up in different slots.
+     *
+     * @param value value to be mixed
+     * @return mixed hash of the value
+     */
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lookup command that allows books to be found by their exact ISBN.
+ */
+public class LookupCmd extends LibraryCommand {
+
+    /** Instance field for the ISBN to look for. */
+    private String isbn;
+
+    /**
+     * Create the lookup command and initialise it with
+     * the given command argument.
+     *
+     * @param argumentInput argument input as expected by the extending subclass.
+     * @throws IllegalArgumentException if given arguments are invalid
+     * @throws NullPointerException     if any of the given parameters are null.
+     */
+    public LookupCmd(String argumentInput) {
+        super(CommandType.LOOKUP, argumentInput);
+
+    }
+
+    /**
+     * Parses the argument input. Checks the input is not empty and contains no spaces.
+     *
+     * @param argumentInput input from user.
+     * @return true if argument is valid.
+     * @return false if argument is invalid.
+     * @throws NullPointerException     if any of the given parameters are null.
+     */
+    @Override
+    protected boolean parseArguments(String argumentInput) {
+        Objects.requireNonNull(argumentInput, "ISBN cannot be null");
+
+        if (argumentInput.length() == 0 || argumentInput.contains(" ")) {
+            return false;
+
+        } else {
+            isbn = argumentInput;
+            return true;
+        }
+
+    }
+
+    /**
+     * Execute the lookup command. This prints all details of the books with
+     * the inputted ISBN, which are found through the ISBN index of the library.
+     *
+     * @param data book data to be considered for command execution.
+     * @throws NullPointerException when data is null.
+     */
+    @Override
+    public void execute(LibraryData data) {
+        Objects.requireNonNull(data, "Given library data must not be null.");
+        List<BookEntry> found = data.findByISBN(isbn);
+
+        if (found.isEmpty()) {
+            System.out.println("No book found for ISBN: " + isbn);
+
+        } else {
+            for (BookEntry book : found) {
+                System.out.println(book);
+                System.out.println("");
+            }
+        }
+    }
+}
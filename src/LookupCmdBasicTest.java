@@ -0,0 +1,77 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LookupCmdBasicTest extends CommandTest {
+
+    private static final String SHARED_ISBN = "ISBNA";
+
+    @Override
+    protected CommandType getCmdType() {
+        return CommandType.LOOKUP;
+    }
+
+    @Before
+    public void setup() {
+        testCommand = new LookupCmd(SHARED_ISBN);
+
+        testLibrary = new LibraryData();
+        List<BookEntry> bookData = new ArrayList<>();
+        bookData.add(new BookEntry("TitleA", new String[] { "AuthorA" }, 3.2f, SHARED_ISBN, 500));
+        bookData.add(new BookEntry("TitleB", new String[] { "AuthorA", "AuthorB" }, 4.3f, "ISBNB", 400));
+        bookData.add(new BookEntry("TitleC", new String[] { "AuthorC" }, 2.5f, SHARED_ISBN, 300));
+        FieldTestUtils.setPrivateField(testLibrary, testLibrary.getClass(), "books", bookData);
+    }
+
+    // ------------------------- parseArguments tests --------------------
+
+    @Test
+    public void testParseArgumentsIllegalArgument() {
+        String blankArg = "";
+        CommandTestUtils.checkArgumentInput(testCommand, false, blankArg);
+        CommandTestUtils.checkArgumentInput(testCommand, false, "ISBN A");
+    }
+
+    @Test
+    public void testParseArgumentsLegalArgument() {
+        CommandTestUtils.checkArgumentInput(testCommand, true, SHARED_ISBN);
+        CommandTestUtils.checkArgumentInput(testCommand, true, "158234681X");
+    }
+
+    // ------------------------- execute tests --------------------
+
+    @Test
+    public void testExecuteSingleMatch() {
+        testCommand = new LookupCmd("ISBNB");
+        String expectedConsoleOutput = "TitleB\nby AuthorA, AuthorB\nRating: 4.30\nISBN: ISBNB\n400 pages";
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, expectedConsoleOutput);
+    }
+
+    @Test
+    public void testExecuteMultipleMatches() {
+        String expectedConsoleOutput = "TitleA\nby AuthorA\nRating: 3.20\nISBN: ISBNA\n500 pages\n\n"
+                + "TitleC\nby AuthorC\nRating: 2.50\nISBN: ISBNA\n300 pages";
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, expectedConsoleOutput);
+    }
+
+    @Test
+    public void testExecuteNoMatch() {
+        testCommand = new LookupCmd("Unknown");
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, "No book found for ISBN: Unknown");
+    }
+
+    @Test
+    public void testExecuteAfterAddAndRemove() {
+        new RemoveCmd("TITLE TitleA").execute(testLibrary);
+        new AddCmd("booksTestData01.csv").execute(testLibrary);
+
+        String expectedConsoleOutput = "TitleC\nby AuthorC\nRating: 2.50\nISBN: ISBNA\n300 pages";
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, expectedConsoleOutput);
+
+        testCommand = new LookupCmd("452284244");
+        expectedConsoleOutput = "Animal Farm\nby George Orwell\nRating: 3.91\nISBN: 452284244\n122 pages";
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, expectedConsoleOutput);
+    }
+}
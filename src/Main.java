@@ -1,12 +1,14 @@
+import java.nio.file.Paths;
+
 /** Main entry point into the library browser program. */
 public class Main {
 
     /**
      * Start the library browser program.
-     * @param args not used for arguments
+     * @param args optional journal file the book data is recovered from and journaled to
      */
     public static void main(String[] args) {
-        LibraryBrowser browser = new LibraryBrowser();
+        LibraryBrowser browser = args.length > 0 ? new LibraryBrowser(Paths.get(args[0])) : new LibraryBrowser();
         browser.run();
     }
 }
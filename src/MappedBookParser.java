@@ -0,0 +1,536 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Parser backend which maps book data files into memory and parses
+ * rows directly from the mapped bytes.
+ *
+ * Delimiters are found by scanning bytes and the numeric columns are parsed
+ * in place, so the only objects allocated per row are the Strings and arrays
+ * kept by the resulting book entry.
+ */
+public class MappedBookParser {
+
+    /** Largest region of a file mapped at once. */
+    private static final long MAP_WINDOW = 1L << 28;
+
+    /** Number of comma separated columns in a row. */
+    private static final int COLUMN_COUNT = 5;
+
+    /** Largest mantissa that is exactly representable as a float. */
+    private static final int MAX_EXACT_FLOAT_MANTISSA = 1 << 24;
+
+    /** Powers of ten which are exactly representable as a float. */
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f,
+            1e9f, 1e10f };
+
+    /** Largest number of digits which cannot overflow an int. */
+    private static final int MAX_SAFE_INT_DIGITS = 9;
+
+    /** Scratch space used to decode Strings from the mapped bytes. */
+    private byte[] scratch;
+
+    /** Start offsets of the columns of the row currently parsed. */
+    private final int[] columnStarts;
+
+    /** End offsets of the columns of the row currently parsed. */
+    private final int[] columnEnds;
+
+    /** Number of column delimiters found in the row currently parsed. */
+    private int columnCount;
+
+    /** Dictionary providing the shared instances of author names. */
+    private final AuthorDictionary authorDictionary;
+
+    /** Quarantine receiving invalid rows or null if invalid rows fail the parse. */
+    private Quarantine quarantine;
+
+    /** Create a new parser. */
+    public MappedBookParser() {
+        this(new AuthorDictionary());
+    }
+
+    /**
+     * Create a new parser sharing author names through the given dictionary.
+     *
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @throws NullPointerException if the given dictionary is null
+     */
+    public MappedBookParser(AuthorDictionary authorDictionary) {
+        Objects.requireNonNull(authorDictionary, "Given author dictionary must not be null.");
+        this.authorDictionary = authorDictionary;
+        scratch = new byte[256];
+        columnStarts = new int[COLUMN_COUNT];
+        columnEnds = new int[COLUMN_COUNT];
+    }
+
+    /**
+     * Hand invalid rows to the given quarantine and carry on with the next
+     * row instead of failing the parse.
+     *
+     * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+     */
+    public void setQuarantine(Quarantine quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Map the specified book data file and hand over each parsed
+     * row in file order. The header line is skipped.
+     *
+     * @param fileName file path with book data
+     * @param consumer receives each parsed book in file order
+     * @return true if book data could be read successfully, false otherwise
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public boolean parseFile(Path fileName, Consumer<BookEntry> consumer) {
+        Objects.requireNonNull(consumer, "Given consumer must not be null.");
+        return parseFileWithOffsets(fileName, (offset, book) -> consumer.accept(book));
+    }
+
+    /**
+     * Find the offset of the first row after the header line.
+     *
+     * @param channel channel of the book data file
+     * @param size size of the book data file
+     * @return offset of the first row or the file size if there is none
+     * @throws IOException if the file could not be read
+     */
+    public long skipHeader(FileChannel channel, long size) throws IOException {
+        return nextLineStart(channel, 0, size);
+    }
+
+    /**
+     * Find the start of the line following the given offset.
+     *
+     * @param channel channel of the book data file
+     * @param offset offset to search from
+     * @param size size of the book data file
+     * @return offset just after the next line break or the file size if there is none
+     * @throws IOException if the file could not be read
+     */
+    public long nextLineStart(FileChannel channel, long offset, long size) throws IOException {
+        long position = offset;
+
+        while (position < size) {
+            long length = Math.min(size - position, MAP_WINDOW);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    /**
+     * Count the line breaks between the given offsets.
+     *
+     * @param channel channel of the book data file
+     * @param start offset of the first byte to be considered
+     * @param end offset after the last byte to be considered
+     * @return number of line breaks found
+     * @throws IOException if the file could not be read
+     */
+    public long countLineBreaks(FileChannel channel, long start, long end) throws IOException {
+        long position = start;
+        long count = 0;
+
+        while (position < end) {
+            long length = Math.min(end - position, MAP_WINDOW);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    count++;
+                }
+            }
+            position += length;
+        }
+        return count;
+    }
+
+    /**
+     * Find the end of the last complete line following the given offset.
+     * Bytes after it belong to a row which may still be written.
+     *
+     * @param channel channel of the book data file
+     * @param offset offset to search from
+     * @param size size of the book data file
+     * @return offset just after the last line break or the given offset if there is none
+     * @throws IOException if the file could not be read
+     */
+    public long lastLineEnd(FileChannel channel, long offset, long size) throws IOException {
+        long position = size;
+
+        while (position > offset) {
+            long length = Math.min(position - offset, MAP_WINDOW);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position - length, length);
+
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return position - length + i + 1;
+                }
+            }
+            position -= length;
+        }
+        return offset;
+    }
+
+    /**
+     * Map the specified book data file and hand over each parsed row in
+     * file order together with the file offset it starts at. The header
+     * line is skipped.
+     *
+     * @param fileName file path with book data
+     * @param consumer receives each parsed book and its offset in file order
+     * @return true if book data could be read successfully, false otherwise
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public boolean parseFileWithOffsets(Path fileName, RowConsumer consumer) {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        Objects.requireNonNull(consumer, "Given consumer must not be null.");
+        boolean success = false;
+
+        try (FileChannel channel = FileChannel.open(fileName, StandardOpenOption.READ)) {
+            long size = channel.size();
+            parseRangeWithOffsets(channel, skipHeader(channel, size), size, consumer);
+            success = true;
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Reading file content failed: " + e);
+        }
+
+        return success;
+    }
+
+    /**
+     * Parse all rows between the given offsets. The start offset has to be the
+     * beginning of a line and the end offset either the end of the file or the
+     * beginning of a line.
+     *
+     * @param channel channel of the book data file
+     * @param start offset of the first row to be parsed
+     * @param end offset after the last row to be parsed
+     * @param consumer receives each parsed book in file order
+     * @throws IOException if the file could not be read or a row does not fit into a mapping window
+     * @throws IllegalArgumentException if a row holds invalid book data and no quarantine is set
+     */
+    public void parseRange(FileChannel channel, long start, long end, Consumer<BookEntry> consumer)
+            throws IOException {
+        parseRangeWithOffsets(channel, start, end, (offset, book) -> consumer.accept(book));
+    }
+
+    /**
+     * Parse all rows between the given offsets and hand them over together
+     * with the file offset each row starts at.
+     *
+     * @param channel channel of the book data file
+     * @param start offset of the first row to be parsed
+     * @param end offset after the last row to be parsed
+     * @param consumer receives each parsed book and its offset in file order
+     * @throws IOException if the file could not be read or a row does not fit into a mapping window
+     * @throws IllegalArgumentException if a row holds invalid book data and no quarantine is set
+     */
+    public void parseRangeWithOffsets(FileChannel channel, long start, long end, RowConsumer consumer)
+            throws IOException {
+        long position = start;
+
+        while (position < end) {
+            long length = Math.min(end - position, MAP_WINDOW);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int consumed = parseBuffer(buffer, position, (int) length, position + length == end, consumer);
+
+            if (consumed == 0) {
+                throw new IOException("Row at offset " + position + " exceeds the mapping window.");
+            }
+            position += consumed;
+        }
+    }
+
+    /**
+     * Parse a single row held by the given buffer.
+     *
+     * @param buffer bytes holding the row
+     * @param start offset of the first byte of the row
+     * @param limit offset after the last byte which may belong to the row
+     * @return book entry holding the values of the row, which ends at the next
+     * line break or the limit
+     * @throws IllegalArgumentException if the row holds invalid book data
+     */
+    public BookEntry parseLine(ByteBuffer buffer, int start, int limit) {
+        return parseRow(buffer, start, splitColumns(buffer, start, limit));
+    }
+
+    /**
+     * Parse all complete rows of the given buffer.
+     *
+     * @param buffer mapped bytes
+     * @param position file offset of the first mapped byte
+     * @param length number of mapped bytes
+     * @param lastWindow true if the buffer ends at the end of the parsed range
+     * @param consumer receives each parsed book and its offset in file order
+     * @return number of bytes consumed
+     */
+    private int parseBuffer(ByteBuffer buffer, long position, int length, boolean lastWindow,
+            RowConsumer consumer) {
+        int lineStart = 0;
+
+        while (lineStart < length) {
+            int lineEnd = splitColumns(buffer, lineStart, length);
+
+            if (lineEnd == length && !lastWindow) {
+                // the row continues in the next window
+                break;
+            }
+
+            BookEntry book = null;
+            try {
+                book = parseRow(buffer, lineStart, lineEnd);
+            } catch (IllegalArgumentException e) {
+                if (quarantine == null) {
+                    throw e;
+                }
+                quarantine.rejectRow(position + lineStart, decodeRow(buffer, lineStart, lineEnd), e);
+            }
+
+            if (book != null) {
+                consumer.accept(position + lineStart, book);
+            }
+            lineStart = Math.min(lineEnd + 1, length);
+        }
+
+        return lineStart;
+    }
+
+    /**
+     * Parse a single row of book data from the previously found column boundaries.
+     *
+     * @param buffer bytes holding the row
+     * @param start offset of the first byte of the row
+     * @param end offset of the line break ending the row or the end of the buffer
+     * @return book entry holding the values of the row
+     * @throws IllegalArgumentException if the row holds invalid book data
+     */
+    private BookEntry parseRow(ByteBuffer buffer, int start, int end) {
+        if (columnCount < COLUMN_COUNT - 1) {
+            throw new IllegalArgumentException("Invalid row. Expected " + COLUMN_COUNT + " columns.");
+        }
+        if (columnCount == COLUMN_COUNT - 1) {
+            int contentEnd = end;
+            if (contentEnd > start && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            columnEnds[COLUMN_COUNT - 1] = contentEnd;
+        }
+
+        String title = decode(buffer, columnStarts[0], columnEnds[0]);
+        String[] authors = splitAuthors(buffer, columnStarts[1], columnEnds[1]);
+        float rating = parseFloat(buffer, columnStarts[2], columnEnds[2]);
+        String ISBN = decode(buffer, columnStarts[3], columnEnds[3]);
+        int pages = parseInt(buffer, columnStarts[4], columnEnds[4]);
+
+        return new BookEntry(title, authors, rating, ISBN, pages);
+    }
+
+    /**
+     * Find the end of the row starting at the given offset together with its
+     * column boundaries. Any columns after the expected ones are ignored.
+     *
+     * @param buffer mapped bytes
+     * @param start offset of the first byte of the row
+     * @param length number of mapped bytes
+     * @return offset of the line break ending the row or the buffer length if there is none
+     */
+    private int splitColumns(ByteBuffer buffer, int start, int length) {
+        columnCount = 0;
+        columnStarts[0] = start;
+        int i = start;
+
+        for (; i < length; i++) {
+            byte current = buffer.get(i);
+
+            if (current == '\n') {
+                break;
+            } else if (current == ',' && columnCount < COLUMN_COUNT) {
+                columnEnds[columnCount] = i;
+                columnCount++;
+                if (columnCount < COLUMN_COUNT) {
+                    columnStarts[columnCount] = i + 1;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Splits the author column into separate values. Trailing empty values are
+     * dropped just like String.split does, so a column of dashes only holds no
+     * authors while an empty column holds a single empty one. Each value is
+     * replaced by its shared instance from the author dictionary.
+     *
+     * @param buffer mapped bytes
+     * @param start offset of the author column
+     * @param end offset after the author column
+     * @return array filled with book authors
+     */
+    private String[] splitAuthors(ByteBuffer buffer, int start, int end) {
+        int trimmedEnd = end;
+        while (trimmedEnd > start && buffer.get(trimmedEnd - 1) == '-') {
+            trimmedEnd--;
+        }
+        if (trimmedEnd == start && end > start) {
+            return new String[0];
+        }
+
+        int count = 1;
+        for (int i = start; i < trimmedEnd; i++) {
+            if (buffer.get(i) == '-') {
+                count++;
+            }
+        }
+
+        String[] authors = new String[count];
+        int authorStart = start;
+        int author = 0;
+        for (int i = start; i < trimmedEnd; i++) {
+            if (buffer.get(i) == '-') {
+                authors[author++] = authorDictionary.canonicalise(decode(buffer, authorStart, i));
+                authorStart = i + 1;
+            }
+        }
+        authors[author] = authorDictionary.canonicalise(decode(buffer, authorStart, trimmedEnd));
+
+        return authors;
+    }
+
+    /**
+     * Decode a whole row without its line break.
+     *
+     * @param buffer mapped bytes
+     * @param start offset of the first byte of the row
+     * @param end offset of the line break ending the row or the end of the row
+     * @return decoded row
+     */
+    private String decodeRow(ByteBuffer buffer, int start, int end) {
+        int contentEnd = end;
+        if (contentEnd > start && buffer.get(contentEnd - 1) == '\r') {
+            contentEnd--;
+        }
+        return decode(buffer, start, contentEnd);
+    }
+
+    /**
+     * Decode the given bytes as UTF-8 String.
+     *
+     * @param buffer mapped bytes
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return decoded String
+     */
+    private String decode(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        // copies the bytes in bulk through a view, so the position of the buffer is left alone
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(start);
+        bytes.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a float in plain decimal notation directly from the given bytes.
+     * Values which cannot be parsed exactly this way fall back to Float.parseFloat,
+     * so the result is always identical to it.
+     *
+     * @param buffer mapped bytes
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return parsed value
+     * @throws NumberFormatException if the bytes do not hold a valid float
+     */
+    private float parseFloat(ByteBuffer buffer, int start, int end) {
+        int mantissa = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        boolean digits = false;
+
+        for (int i = start; i < end; i++) {
+            byte current = buffer.get(i);
+
+            if (current >= '0' && current <= '9') {
+                mantissa = mantissa * 10 + (current - '0');
+                digits = true;
+                if (fraction) {
+                    fractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_FLOAT_MANTISSA || fractionDigits >= FLOAT_POWERS_OF_TEN.length) {
+                    return Float.parseFloat(decode(buffer, start, end));
+                }
+            } else if (current == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return Float.parseFloat(decode(buffer, start, end));
+            }
+        }
+
+        if (!digits) {
+            return Float.parseFloat(decode(buffer, start, end));
+        }
+        // both operands are exact, so the division rounds exactly like Float.parseFloat
+        return mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+    }
+
+    /**
+     * Parse an int directly from the given bytes. Anything but short plain
+     * digit sequences falls back to Integer.parseInt.
+     *
+     * @param buffer mapped bytes
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return parsed value
+     * @throws NumberFormatException if the bytes do not hold a valid int
+     */
+    private int parseInt(ByteBuffer buffer, int start, int end) {
+        if (end == start || end - start > MAX_SAFE_INT_DIGITS) {
+            return Integer.parseInt(decode(buffer, start, end));
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            byte current = buffer.get(i);
+            if (current < '0' || current > '9') {
+                return Integer.parseInt(decode(buffer, start, end));
+            }
+            value = value * 10 + (current - '0');
+        }
+        return value;
+    }
+
+    /** Receives parsed rows together with the file offset they start at. */
+    public interface RowConsumer {
+
+        /**
+         * Accept a parsed row.
+         *
+         * @param offset file offset of the first byte of the row
+         * @param book book entry parsed from the row
+         */
+        void accept(long offset, BookEntry book);
+    }
+}
@@ -0,0 +1,521 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * List of book entries encoded into memory outside of the Java heap. Rows
+ * are written to direct byte buffers and a book entry is decoded from its
+ * row whenever it is requested, so the heap only holds a few primitive
+ * values per row however many books are loaded.
+ *
+ * A row is encoded as its length followed by the title, the number of
+ * authors, each author, the ISBN, the rating and the number of pages.
+ * Strings are stored as UTF-8 bytes after their length, and all lengths are
+ * stored in as few bytes as their value needs. ISBNs and ratings are packed
+ * by CompactBookValues: a packed ISBN is stored like a length, and zero
+ * followed by the string marks an ISBN which could not be packed. A rating
+ * takes two bytes of hundredths, followed by the rating as it is if it is
+ * no whole number of hundredths. The bytes of removed rows
+ * are reclaimed once they make up more than half of the encoded rows. The
+ * direct memory available is limited by -XX:MaxDirectMemorySize, which
+ * defaults to the maximum heap size.
+ *
+ * Like LazyBookList, every row is represented by a 64 bit key of its
+ * values, see RowKeys, so only rows sharing the key of an entry are decoded
+ * to detect duplicates.
+ *
+ * This class is not thread-safe. Snapshots taken with snapshot can be read
+ * while the list changes.
+ */
+public class OffHeapBookList extends AbstractList<BookEntry> implements RandomAccess {
+
+    /** Size of a chunk of direct memory rows are encoded into. */
+    private static final int CHUNK_SIZE = 1 << 24;
+
+    /** Number of bits used for the offset within a chunk. */
+    private static final int OFFSET_BITS = 32;
+
+    /** Mask extracting the offset from a row location. */
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /** Initial number of rows. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Chunks of direct memory holding the encoded rows. */
+    private final List<ByteBuffer> chunks;
+
+    /** Keys of all rows in the list. */
+    private final RowKeys rowKeys;
+
+    /** Chunk and offset of each row. */
+    private long[] locations;
+
+    /** Number of rows. */
+    private int size;
+
+    /** True if a snapshot refers to the current location array, so it is copied before rows are moved. */
+    private boolean shared;
+
+    /** Bytes of all encoded rows, including removed ones. */
+    private long encodedBytes;
+
+    /** Bytes of removed rows not yet reclaimed. */
+    private long removedBytes;
+
+    /** Buffer a row is encoded into before it is copied to direct memory. */
+    private ByteBuffer scratch;
+
+    /** Create a new and empty list. */
+    public OffHeapBookList() {
+        chunks = new ArrayList<>();
+        rowKeys = new RowKeys();
+        locations = new long[INITIAL_CAPACITY];
+        size = 0;
+        scratch = ByteBuffer.allocate(1 << 10);
+    }
+
+    @Override
+    public BookEntry get(int index) {
+        Objects.checkIndex(index, size);
+        long location = locations[index];
+        return decode(row(chunks.get(chunkOf(location)).duplicate(), location));
+    }
+
+    /**
+     * Decode a row.
+     *
+     * @param row buffer holding the row, positioned after its length
+     * @return book entry holding the values of the row
+     */
+    private static BookEntry decode(ByteBuffer row) {
+        String title = readString(row);
+        String[] authors = new String[readLength(row)];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = readString(row);
+        }
+        long packedIsbn = readNumber(row);
+        String isbn = packedIsbn == 0 ? readString(row) : CompactBookValues.unpackISBN(packedIsbn);
+        short packedRating = row.getShort();
+        float rating = packedRating == CompactBookValues.INEXACT_RATING ? row.getFloat()
+                : CompactBookValues.unpackRating(packedRating);
+        int pages = row.getInt();
+
+        return new BookEntry(title, authors, rating, isbn, pages);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the row keys, so only rows sharing the key of the given entry are decoded.
+     *
+     * @param o an object e.g. a book entry
+     * @return true if an equal row is part of the list
+     */
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Looks up the row keys, so only rows sharing the key of the given entry are decoded.
+     *
+     * @param o an object e.g. a book entry
+     * @return row of the first equal entry or -1 if there is none
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof BookEntry)) {
+            return -1;
+        }
+        BookEntry book = (BookEntry) o;
+        return rowKeys.find(book, RowKeys.keyOf(book), this::get);
+    }
+
+    @Override
+    public void add(int index, BookEntry book) {
+        Objects.requireNonNull(book, "Given book must not be null.");
+        Objects.checkIndex(index, size + 1);
+
+        long location = append(encode(book));
+        ensureCapacity(size + 1);
+        if (index < size) {
+            unshare();
+        }
+        System.arraycopy(locations, index, locations, index + 1, size - index);
+        locations[index] = location;
+        rowKeys.add(index, RowKeys.keyOf(book));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public BookEntry remove(int index) {
+        BookEntry removed = get(index);
+        removedBytes += rowSize(locations[index]);
+
+        unshare();
+        System.arraycopy(locations, index + 1, locations, index, size - index - 1);
+        size--;
+        rowKeys.remove(index);
+        modCount++;
+        reclaimIfWasteful();
+        return removed;
+    }
+
+    /**
+     * Removes all matching rows in a single pass over the row locations.
+     *
+     * @param filter condition the removed entries meet
+     * @return true if any row was removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super BookEntry> filter) {
+        Objects.requireNonNull(filter, "Given filter must not be null.");
+
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(get(i))) {
+                removedBytes += rowSize(locations[i]);
+                // kept rows move from here on
+                unshare();
+            } else {
+                rowKeys.move(i, kept);
+                locations[kept++] = locations[i];
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+
+        rowKeys.truncate(kept);
+        size = kept;
+        modCount++;
+        reclaimIfWasteful();
+        return true;
+    }
+
+    /**
+     * Take an unmodifiable snapshot of the rows of the list. Rows are not
+     * copied but decoded on access like those of the list, and the snapshot
+     * is not affected by later changes of the list: encoded rows are never
+     * overwritten, and the list copies its locations before it moves rows
+     * the snapshot refers to.
+     *
+     * @return snapshot of the current rows
+     */
+    public List<BookEntry> snapshot() {
+        shared = true;
+        // duplicates keep their own position, which appending to a chunk does not move
+        ByteBuffer[] chunkViews = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < chunkViews.length; i++) {
+            chunkViews[i] = chunks.get(i).duplicate();
+        }
+        return new Snapshot(chunkViews, locations, size);
+    }
+
+    /**
+     * Number of bytes of direct memory held by the list.
+     *
+     * @return capacity of all chunks
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Number of bytes of direct memory taken by the encoded rows.
+     *
+     * @return bytes of all encoded rows, including removed ones not yet reclaimed
+     */
+    public long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    /**
+     * Encode a book entry into the scratch buffer.
+     *
+     * @param book book entry to be encoded
+     * @return buffer holding the encoded row between position and limit
+     */
+    private ByteBuffer encode(BookEntry book) {
+        byte[] title = book.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[][] authors = new byte[book.getAuthorCount()][];
+        // packed ISBNs are never zero, as they hold the length of the ISBN
+        long packedIsbn = CompactBookValues.packISBN(book.getISBN());
+        byte[] isbn = packedIsbn == CompactBookValues.NOT_PACKED ? book.getISBN().getBytes(StandardCharsets.UTF_8)
+                : null;
+        short packedRating = CompactBookValues.packRating(book.getRating());
+
+        int length = lengthSize(title.length) + title.length + lengthSize(authors.length) + Short.BYTES
+                + Integer.BYTES;
+        length += isbn == null ? lengthSize(packedIsbn) : lengthSize(0) + lengthSize(isbn.length) + isbn.length;
+        length += packedRating == CompactBookValues.INEXACT_RATING ? Float.BYTES : 0;
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = book.getAuthor(i).getBytes(StandardCharsets.UTF_8);
+            length += lengthSize(authors[i].length) + authors[i].length;
+        }
+
+        int rowSize = lengthSize(length) + length;
+        if (rowSize > scratch.capacity()) {
+            scratch = ByteBuffer.allocate(Math.max(rowSize, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        writeLength(scratch, length);
+        writeBytes(scratch, title);
+        writeLength(scratch, authors.length);
+        for (byte[] author : authors) {
+            writeBytes(scratch, author);
+        }
+        if (isbn == null) {
+            writeLength(scratch, packedIsbn);
+        } else {
+            writeLength(scratch, 0);
+            writeBytes(scratch, isbn);
+        }
+        scratch.putShort(packedRating);
+        if (packedRating == CompactBookValues.INEXACT_RATING) {
+            scratch.putFloat(book.getRating());
+        }
+        scratch.putInt(book.getPages());
+
+        scratch.flip();
+        return scratch;
+    }
+
+    /**
+     * Copy an encoded row to the end of the last chunk, starting a new
+     * chunk if it does not fit.
+     *
+     * @param encoded buffer holding the encoded row between position and limit
+     * @return chunk and offset of the row
+     */
+    private long append(ByteBuffer encoded) {
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < encoded.remaining()) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, encoded.remaining()));
+            chunks.add(chunk);
+        }
+
+        long location = ((long) (chunks.size() - 1) << OFFSET_BITS) | chunk.position();
+        encodedBytes += encoded.remaining();
+        chunk.put(encoded);
+        return location;
+    }
+
+    /**
+     * Get the chunk of a row location.
+     *
+     * @param location chunk and offset of a row
+     * @return index of the chunk
+     */
+    private static int chunkOf(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    /**
+     * Limit a view of a chunk to the row at the given location, positioned after its length.
+     *
+     * @param chunk duplicate of the chunk holding the row, which is changed
+     * @param location chunk and offset of the row
+     * @return the given buffer holding the row
+     */
+    private static ByteBuffer row(ByteBuffer chunk, long location) {
+        chunk.position((int) (location & OFFSET_MASK));
+        int length = readLength(chunk);
+        chunk.limit(chunk.position() + length);
+        return chunk;
+    }
+
+    /**
+     * Get the number of bytes of the row at the given location.
+     *
+     * @param location chunk and offset of the row
+     * @return bytes of the row including its length
+     */
+    private int rowSize(long location) {
+        return row(chunks.get(chunkOf(location)).duplicate(), location).limit() - (int) (location & OFFSET_MASK);
+    }
+
+    /**
+     * Encode all rows again into new chunks once more than half of the
+     * encoded bytes belong to removed rows. The old chunks are released
+     * when they are garbage collected.
+     */
+    private void reclaimIfWasteful() {
+        if (removedBytes * 2 <= encodedBytes) {
+            return;
+        }
+        unshare();
+
+        List<ByteBuffer> oldChunks = new ArrayList<>(chunks);
+        long[] oldLocations = locations;
+        chunks.clear();
+        encodedBytes = 0;
+        removedBytes = 0;
+        for (int i = 0; i < size; i++) {
+            ByteBuffer oldChunk = oldChunks.get((int) (oldLocations[i] >>> OFFSET_BITS)).duplicate();
+            int start = (int) (oldLocations[i] & OFFSET_MASK);
+            oldChunk.position(start);
+            int length = readLength(oldChunk);
+            oldChunk.limit(oldChunk.position() + length).position(start);
+            locations[i] = append(oldChunk);
+        }
+    }
+
+    /**
+     * Make sure the location array can hold the given number of rows.
+     *
+     * @param capacity required number of rows
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > locations.length) {
+            locations = Arrays.copyOf(locations, Math.max(capacity, locations.length + (locations.length >> 1)));
+            shared = false;
+        }
+    }
+
+    /** Copy the location array if a snapshot refers to it, so rows can be moved. */
+    private void unshare() {
+        if (shared) {
+            locations = locations.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Number of bytes needed to store a length or another non-negative number.
+     *
+     * @param length non-negative length
+     * @return number of bytes, 7 bits of the length being stored per byte
+     */
+    private static int lengthSize(long length) {
+        int bytes = 1;
+        for (long rest = length >>> 7; rest != 0; rest >>>= 7) {
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Write a length or another non-negative number using 7 bits per byte,
+     * the highest bit marking that more bytes follow.
+     *
+     * @param buffer buffer to write to
+     * @param length non-negative length
+     */
+    private static void writeLength(ByteBuffer buffer, long length) {
+        long rest = length;
+        while ((rest & ~0x7F) != 0) {
+            buffer.put((byte) ((rest & 0x7F) | 0x80));
+            rest >>>= 7;
+        }
+        buffer.put((byte) rest);
+    }
+
+    /**
+     * Read a length written by writeLength.
+     *
+     * @param buffer buffer to read from
+     * @return length
+     */
+    private static int readLength(ByteBuffer buffer) {
+        return (int) readNumber(buffer);
+    }
+
+    /**
+     * Read a number written by writeLength.
+     *
+     * @param buffer buffer to read from
+     * @return non-negative number
+     */
+    private static long readNumber(ByteBuffer buffer) {
+        long number = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            number |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return number;
+    }
+
+    /**
+     * Write the given bytes preceded by their length.
+     *
+     * @param buffer buffer to write to
+     * @param bytes bytes to be written
+     */
+    private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+        writeLength(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read a string written as UTF-8 bytes preceded by their length.
+     *
+     * @param buffer buffer to read from
+     * @return decoded string
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Unmodifiable snapshot of the rows of the list. Locations are only
+     * appended past the end of the snapshot, any other change copies them
+     * first, and encoded rows are never overwritten, so the rows of the
+     * snapshot never change.
+     */
+    private static final class Snapshot extends AbstractList<BookEntry> implements RandomAccess {
+
+        /** Duplicates of the chunks holding the encoded rows. */
+        private final ByteBuffer[] chunks;
+
+        /** Chunk and offset of each row. */
+        private final long[] locations;
+
+        /** Number of rows. */
+        private final int size;
+
+        /**
+         * Create a snapshot of the given rows.
+         *
+         * @param chunks duplicates of the chunks holding the encoded rows
+         * @param locations chunk and offset of each row
+         * @param size number of rows
+         */
+        Snapshot(ByteBuffer[] chunks, long[] locations, int size) {
+            this.chunks = chunks;
+            this.locations = locations;
+            this.size = size;
+        }
+
+        @Override
+        public BookEntry get(int index) {
+            Objects.checkIndex(index, size);
+            long location = locations[index];
+            return decode(row(chunks[chunkOf(location)].duplicate(), location));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parser backend which splits a single book data file into byte ranges
+ * aligned to line breaks and parses the ranges concurrently.
+ *
+ * Each range is parsed by its own MappedBookParser and the results are
+ * stitched back together in file order.
+ */
+public class ParallelBookParser {
+
+    /** Smallest range worth parsing on a separate task. */
+    private static final long MIN_RANGE_SIZE = 1L << 20;
+
+    /** Number of ranges created per worker thread to even out uneven ranges. */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /** Pool the ranges are parsed on. */
+    private final ForkJoinPool pool;
+
+    /** Dictionary providing the shared instances of author names. */
+    private final AuthorDictionary authorDictionary;
+
+    /** Quarantine receiving invalid rows or null if invalid rows fail the parse. */
+    private Quarantine quarantine;
+
+    /** Create a new parser running on the common pool. */
+    public ParallelBookParser() {
+        this(ForkJoinPool.commonPool(), new AuthorDictionary());
+    }
+
+    /**
+     * Create a new parser running on the given pool and sharing author
+     * names through the given dictionary.
+     *
+     * @param pool pool the ranges are parsed on
+     * @param authorDictionary dictionary providing the shared instances of author names
+     * @throws NullPointerException if any of the given parameters are null
+     */
+    public ParallelBookParser(ForkJoinPool pool, AuthorDictionary authorDictionary) {
+        Objects.requireNonNull(pool, "Given pool must not be null.");
+        Objects.requireNonNull(authorDictionary, "Given author dictionary must not be null.");
+        this.pool = pool;
+        this.authorDictionary = authorDictionary;
+    }
+
+    /**
+     * Hand invalid rows of all ranges to the given quarantine and carry on
+     * with the next row instead of failing the parse.
+     *
+     * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+     */
+    public void setQuarantine(Quarantine quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Parse the specified book data file. The header line is skipped.
+     *
+     * @param fileName file path with book data
+     * @return books parsed from the file in file order or null if the file could not be read
+     * @throws NullPointerException if the given file name is null
+     * @throws IllegalArgumentException if a row holds invalid book data and no quarantine is set
+     */
+    public List<BookEntry> parseFile(Path fileName) {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+
+        try (FileChannel channel = FileChannel.open(fileName, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] boundaries = splitRanges(channel, size);
+            return pool.invoke(new RangeTask(channel, authorDictionary, quarantine, boundaries, 0,
+                    boundaries.length - 1));
+        } catch (IOException | UncheckedIOException | SecurityException e) {
+            System.err.println("ERROR: Reading file content failed: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Split the rows of the file into ranges of roughly equal size. Each
+     * boundary is moved to the start of the following line.
+     *
+     * @param channel channel of the book data file
+     * @param size size of the book data file
+     * @return ascending range boundaries, the first being the start of the first row
+     * and the last being the file size
+     * @throws IOException if the file could not be read
+     */
+    private long[] splitRanges(FileChannel channel, long size) throws IOException {
+        MappedBookParser parser = new MappedBookParser();
+        long start = parser.skipHeader(channel, size);
+        long rangeCount = Math.max(1, Math.min((long) pool.getParallelism() * RANGES_PER_THREAD,
+                (size - start) / MIN_RANGE_SIZE));
+        long rangeSize = (size - start) / rangeCount;
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        for (long i = 1; i < rangeCount; i++) {
+            long boundary = parser.nextLineStart(channel, start + i * rangeSize - 1, size);
+            if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+                boundaries.add(boundary);
+            }
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Task parsing a run of consecutive ranges. Runs of more than one range
+     * are split in half and the results are concatenated in order.
+     */
+    private static class RangeTask extends RecursiveTask<List<BookEntry>> {
+
+        /** Version used for serialisation. */
+        private static final long serialVersionUID = 1L;
+
+        /** Channel of the book data file. */
+        private final transient FileChannel channel;
+
+        /** Dictionary providing the shared instances of author names. */
+        private final transient AuthorDictionary authorDictionary;
+
+        /** Quarantine receiving invalid rows or null if invalid rows fail the parse. */
+        private final transient Quarantine quarantine;
+
+        /** Range boundaries of the whole file. */
+        private final long[] boundaries;
+
+        /** Index of the first range handled by this task. */
+        private final int first;
+
+        /** Index after the last range handled by this task. */
+        private final int last;
+
+        /**
+         * Create a task for the ranges between the given indices.
+         *
+         * @param channel channel of the book data file
+         * @param authorDictionary dictionary providing the shared instances of author names
+         * @param quarantine quarantine receiving invalid rows or null to fail on invalid rows
+         * @param boundaries range boundaries of the whole file
+         * @param first index of the first range
+         * @param last index after the last range
+         */
+        RangeTask(FileChannel channel, AuthorDictionary authorDictionary, Quarantine quarantine, long[] boundaries,
+                int first, int last) {
+            this.channel = channel;
+            this.authorDictionary = authorDictionary;
+            this.quarantine = quarantine;
+            this.boundaries = boundaries;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected List<BookEntry> compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                RangeTask left = new RangeTask(channel, authorDictionary, quarantine, boundaries, first, middle);
+                RangeTask right = new RangeTask(channel, authorDictionary, quarantine, boundaries, middle, last);
+                right.fork();
+
+                List<BookEntry> result = left.compute();
+                result.addAll(right.join());
+                return result;
+            }
+
+            List<BookEntry> result = new ArrayList<>();
+            try {
+                MappedBookParser parser = new MappedBookParser(authorDictionary);
+                parser.setQuarantine(quarantine);
+                parser.parseRange(channel, boundaries[first], boundaries[last], result::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Collects the rows of a book data file which could not be parsed into book
+ * entries, so that loading can carry on with the remaining rows.
+ *
+ * Rejected rows are written to a quarantine file next to the book data file,
+ * one per line holding the line number, the reason and the row itself
+ * separated by tabs. Rows reported by their file offset are assigned their
+ * line number when the quarantine is written. Rows may be rejected from
+ * several threads at once.
+ */
+public class Quarantine {
+
+    /** File ending appended to the name of the book data file. */
+    public static final String FILE_SUFFIX = ".quarantine";
+
+    /** Delimiter between the values of a quarantined row. */
+    private static final String DELIMITER = "\t";
+
+    /** Book data file the rows were read from. */
+    private final Path dataFile;
+
+    /** File the rejected rows are written to. */
+    private final Path quarantineFile;
+
+    /** Rows rejected so far. */
+    private final List<Rejection> rejections;
+
+    /**
+     * Create an empty quarantine for the given book data file.
+     *
+     * @param dataFile book data file the rows are read from
+     * @throws NullPointerException if the given file is null
+     */
+    public Quarantine(Path dataFile) {
+        Objects.requireNonNull(dataFile, "Given filename must not be null.");
+        this.dataFile = dataFile;
+        this.quarantineFile = Paths.get(dataFile + FILE_SUFFIX);
+        this.rejections = new ArrayList<>();
+    }
+
+    /**
+     * Get the file the rejected rows are written to.
+     *
+     * @return path of the quarantine file
+     */
+    public Path getQuarantineFile() {
+        return quarantineFile;
+    }
+
+    /**
+     * Number of rows rejected and not yet written.
+     *
+     * @return number of rejected rows
+     */
+    public synchronized int size() {
+        return rejections.size();
+    }
+
+    /**
+     * Reject a row identified by its line number.
+     *
+     * @param lineNumber number of the line holding the row, starting at 1 for the header
+     * @param row content of the row without the line break
+     * @param cause reason the row was rejected
+     * @throws NullPointerException if any of the given objects are null
+     */
+    public synchronized void rejectLine(long lineNumber, String row, RuntimeException cause) {
+        rejections.add(new Rejection(lineNumber, -1, row, cause));
+    }
+
+    /**
+     * Reject a row identified by the file offset it starts at. Its line
+     * number is determined when the quarantine is written.
+     *
+     * @param offset file offset of the first byte of the row
+     * @param row content of the row without the line break
+     * @param cause reason the row was rejected
+     * @throws NullPointerException if any of the given objects are null
+     */
+    public synchronized void rejectRow(long offset, String row, RuntimeException cause) {
+        rejections.add(new Rejection(-1, offset, row, cause));
+    }
+
+    /**
+     * Append all rows rejected so far to the quarantine file in line order
+     * and forget about them.
+     *
+     * @return number of rows written
+     * @throws IOException if the book data file could not be read or the quarantine file could not be written
+     */
+    public synchronized int write() throws IOException {
+        if (rejections.isEmpty()) {
+            return 0;
+        }
+        resolveLineNumbers();
+        rejections.sort(Comparator.comparingLong(rejection -> rejection.lineNumber));
+
+        try (BufferedWriter writer = Files.newBufferedWriter(quarantineFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            for (Rejection rejection : rejections) {
+                writer.write(rejection.lineNumber + DELIMITER + rejection.reason + DELIMITER + rejection.row);
+                writer.newLine();
+            }
+        }
+
+        int written = rejections.size();
+        rejections.clear();
+        return written;
+    }
+
+    /**
+     * Determine the line numbers of all rows rejected by their file offset.
+     * The book data file is scanned once up to the last of these rows.
+     *
+     * @throws IOException if the book data file could not be read
+     */
+    private void resolveLineNumbers() throws IOException {
+        List<Rejection> byOffset = new ArrayList<>();
+        for (Rejection rejection : rejections) {
+            if (rejection.lineNumber < 0) {
+                byOffset.add(rejection);
+            }
+        }
+        if (byOffset.isEmpty()) {
+            return;
+        }
+        byOffset.sort(Comparator.comparingLong(rejection -> rejection.offset));
+
+        MappedBookParser parser = new MappedBookParser();
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            long position = 0;
+            long lineBreaks = 0;
+            for (Rejection rejection : byOffset) {
+                lineBreaks += parser.countLineBreaks(channel, position, rejection.offset);
+                position = rejection.offset;
+                rejection.lineNumber = lineBreaks + 1;
+            }
+        }
+    }
+
+    /** Single rejected row. */
+    private static class Rejection {
+
+        /** Number of the line holding the row or -1 if it is not known yet. */
+        private long lineNumber;
+
+        /** File offset of the row or -1 if it is not known. */
+        private final long offset;
+
+        /** Content of the row. */
+        private final String row;
+
+        /** Reason the row was rejected. */
+        private final String reason;
+
+        /**
+         * Create a rejected row.
+         *
+         * @param lineNumber number of the line holding the row or -1 if it is not known yet
+         * @param offset file offset of the row or -1 if it is not known
+         * @param row content of the row
+         * @param cause reason the row was rejected
+         */
+        Rejection(long lineNumber, long offset, String row, RuntimeException cause) {
+            this.lineNumber = lineNumber;
+            this.offset = offset;
+            this.row = Objects.requireNonNull(row, "Given row must not be null.");
+            this.reason = Objects.requireNonNull(cause, "Given cause must not be null.").toString();
+        }
+    }
+}
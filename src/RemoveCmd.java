@@ -69,15 +69,14 @@ public class RemoveCmd extends LibraryCommand {
     public void execute(LibraryData data) {
         Objects.requireNonNull(data, "Given library data must not be null.");
         LibraryData libraryData = data;
-        ArrayList<BookEntry> bookData = (ArrayList<BookEntry>) libraryData.getBookData();
 
         String removeString = getRemoveValues();
 
         if (removeValue.contains(TITLE)) {
-            removeTitleOutput(bookData, removeString);
+            removeTitleOutput(libraryData, removeString);
 
         } else if (removeValue.contains(AUTHOR)) {
-            removeAuthorOutput(bookData, removeString);
+            removeAuthorOutput(libraryData, removeString);
         }
 
     }
@@ -85,19 +84,19 @@ public class RemoveCmd extends LibraryCommand {
     /**
      * Removes data based on title value.
      *
-     * @param bookData book data to be considered for command execution.
+     * @param libraryData book data to be considered for command execution.
      * @param removeString string containing value to be removed.
      */
-    private void removeTitleOutput(ArrayList<BookEntry> bookData, String removeString) {
+    private void removeTitleOutput(LibraryData libraryData, String removeString) {
         int counter = 0;
 
-        for (int i = 0; i < bookData.size(); i++) {
-            BookEntry book = bookData.get(i);
+        // the title index narrows the books down to those with the title in any case
+        for (BookEntry book : libraryData.findByTitleIgnoreCase(removeString)) {
             String title = book.getTitle();
 
             // breaks when title to be removedis found as there should be no duplicates.
             if (title.equals(removeString)) {
-                bookData.remove(i);
+                libraryData.removeBook(book);
                 counter = counter + 1;
                 System.out.println(removeString + ": removed successfully.");
                 break;
@@ -112,20 +111,12 @@ public class RemoveCmd extends LibraryCommand {
     /**
      * Removes data based on author value.
      *
-     * @param bookData book data to be considered for command execution.
+     * @param libraryData book data to be considered for command execution.
      * @param removeString string containing value to be removed.
      */
-    private void removeAuthorOutput(ArrayList<BookEntry> bookData, String removeString) {
-        int counter = 0;
-
-        for (int i = 0; i < bookData.size(); i++) {
-            BookEntry book = bookData.get(i);
-            String[] authors = book.getAuthors();
-            if (Arrays.asList(authors).contains(removeString)) {
-                bookData.remove(i);
-                counter = counter + 1;
-            }
-        }
+    private void removeAuthorOutput(LibraryData libraryData, String removeString) {
+        // the author index holds the positions of the books to be removed, so none of them is looked up
+        int counter = libraryData.removeByAuthor(removeString);
 
         if (counter == 0) {
             System.out.println("0 books removed for author: " + removeString);
@@ -3,6 +3,16 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class RemoveCmdBasicTest extends RemoveCmdTest {
 
@@ -73,4 +83,295 @@ public class RemoveCmdBasicTest extends RemoveCmdTest {
     public void testExecuteNotFound() {
         checkEntryNotFound();
     }
+
+    @Test
+    public void testExecuteRemoveTitleCaseSensitive() {
+        String otherCaseTitle = "titlec";
+        testCommand = new RemoveCmd(TITLE_ARGUMENT + " " + otherCaseTitle);
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary,
+                String.format(TITLE_NOT_FOUND_MESSAGE, otherCaseTitle));
+
+        testCommand = new RemoveCmd(TITLE_ARGUMENT + " TitleC");
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary,
+                String.format(TITLE_REMOVE_MESSAGE, "TitleC"));
+        assertEquals("Removed title expected to be gone from the title index.", 0,
+                testLibrary.findByTitleIgnoreCase(otherCaseTitle).size());
+    }
+
+    @Test
+    public void testExecuteRemoveAuthorConsecutiveBooks() {
+        testLibrary.getBookData().add(2, new BookEntry("TitleB2", new String[] { "AuthorD", AUTHOR_VALUE_ARGUMENT },
+                2.1f, "ISBNB2", 200));
+        testCommand = new RemoveCmd(AUTHOR_ARGUMENT + " " + AUTHOR_VALUE_ARGUMENT);
+
+        int removedAuthors = 2;
+        String expectedConsoleOutput = String.format(AUTHOR_REMOVE_MESSAGE, removedAuthors, AUTHOR_VALUE_ARGUMENT);
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, expectedConsoleOutput);
+        assertEquals("Remaining books expected to be kept.", 2, testLibrary.getBookData().size());
+        assertEquals("Removed books expected to be gone from the author index.", 0,
+                testLibrary.findByAuthor("AuthorD").size());
+    }
+
+    @Test
+    public void testRemoveByAuthorAfterRemovals() {
+        addBooks("TitleD", "TitleE", "TitleF", "TitleG");
+        testLibrary.removeBook(testLibrary.findByTitleIgnoreCase("TitleE").get(0));
+        LibraryVersion before = testLibrary.getCurrentVersion();
+
+        // books removed before are no longer posted for the author, so only the remaining ones are removed
+        assertEquals("Unexpected amount of books removed for author.", 3, testLibrary.removeByAuthor("AuthorD"));
+        assertEquals("Unexpected remaining books.", List.of("TitleA", TITLE_VALUE_ARGUMENT, "TitleC"), titles());
+        assertFalse("Author of removed books expected to be gone.", testLibrary.getAuthorNames().contains("AuthorD"));
+        assertEquals("Earlier version expected to keep the books of the author.", 3,
+                before.findByAuthor("AuthorD").size());
+        assertEquals("Unexpected amount of books removed for author without books.", 0,
+                testLibrary.removeByAuthor("AuthorD"));
+    }
+
+    @Test
+    public void testExecuteRemoveKeepsEarlierVersion() {
+        LibraryVersion before = testLibrary.getCurrentVersion();
+        testCommand.execute(testLibrary);
+
+        assertEquals("Earlier version expected to be unchanged by removal.", 3, before.getBookData().size());
+        assertEquals("Current version expected to reflect removal.", 2,
+                testLibrary.getCurrentVersion().getBookData().size());
+    }
+
+    @Test
+    public void testExecuteRemoveTitleTwice() {
+        testCommand.execute(testLibrary);
+        assertEquals("Removed book expected to be gone from the current version.", 2,
+                testLibrary.getCurrentVersion().getBookData().size());
+
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary,
+                String.format(TITLE_NOT_FOUND_MESSAGE, TITLE_VALUE_ARGUMENT));
+        assertEquals("Unexpected amount of books after removing a title twice.", 2,
+                testLibrary.getBookData().size());
+    }
+
+    @Test
+    public void testRemoveBooksInAnyOrder() {
+        // every book is looked up by its ISBN, whatever order the books are given in
+        List<BookEntry> toRemove = new ArrayList<>(testLibrary.findByTitleIgnoreCase("TitleC"));
+        toRemove.addAll(testLibrary.findByTitleIgnoreCase("TitleA"));
+
+        assertEquals("Unexpected amount of books removed.", 2, testLibrary.removeBooks(toRemove));
+        assertEquals("Unexpected amount of remaining books.", 1, testLibrary.getBookData().size());
+        assertEquals("Unexpected remaining book.", TITLE_VALUE_ARGUMENT, testLibrary.getBookData().get(0).getTitle());
+    }
+
+    @Test
+    public void testRemoveAfterCompaction() {
+        String[] titles = new String[20];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = "Title" + (char) ('D' + i);
+        }
+        addBooks(titles);
+
+        // the sixth removal compacts the book data, which moves the positions held by the indexes
+        for (int i = 0; i < 8; i++) {
+            assertTrue("Book expected to be removed.",
+                    testLibrary.removeBook(testLibrary.findByISBN("ISBN" + titles[i]).get(0)));
+        }
+        BookEntry copy = new BookEntry(titles[12], new String[] { "AuthorD" }, 2.1f, "ISBN" + titles[12], 200);
+        assertFalse("Equal copy of a book expected not to be removed.", testLibrary.removeBook(copy));
+
+        for (int i = titles.length - 1; i >= 8; i -= 2) {
+            BookEntry found = testLibrary.findByTitleIgnoreCase(titles[i]).get(0);
+            assertEquals("Book found by title expected to have the title.", titles[i], found.getTitle());
+            assertTrue("Book expected to be removed after compaction.", testLibrary.removeBook(found));
+        }
+        assertEquals("Unexpected books of author after compaction.", 6, testLibrary.findByAuthor("AuthorD").size());
+        assertEquals("Unexpected remaining books.", List.of("TitleA", TITLE_VALUE_ARGUMENT, "TitleC",
+                titles[8], titles[10], titles[12], titles[14], titles[16], titles[18]), titles());
+    }
+
+    @Test
+    public void testRemoveRowsOfCurrentVersion() {
+        addBooks("TitleD", "TitleE", "TitleF");
+        testLibrary.removeBook(testLibrary.findByTitleIgnoreCase("TitleA").get(0));
+
+        // TitleA is only marked as removed, so the rows of later books are still their positions in the book data
+        LibraryVersion current = testLibrary.getCurrentVersion();
+        RowSet rows = current.findRows(book -> book.getTitle().equals("TitleC") || book.getTitle().equals("TitleE"));
+        assertEquals("Unexpected rows found.", RowSet.of(2, 4), rows);
+
+        assertEquals("Unexpected amount of books removed.", 2, testLibrary.removeRows(current, rows));
+        assertEquals("Unexpected remaining books.", List.of(TITLE_VALUE_ARGUMENT, "TitleD", "TitleF"), titles());
+        assertEquals("Removed books expected to be gone from the title index.", 0,
+                testLibrary.findByTitleIgnoreCase("TitleE").size());
+    }
+
+    @Test
+    public void testVersionSkipsPositionsOfRemovedBooks() {
+        String[] titles = new String[200];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = "Title" + i;
+        }
+        addBooks(titles);
+
+        // fewer than a quarter of the books are removed, so they stay held at their positions
+        List<String> expected = new ArrayList<>(List.of("TitleA", TITLE_VALUE_ARGUMENT, "TitleC"));
+        for (int i = 0; i < titles.length; i++) {
+            if (i % 5 == 3) {
+                testLibrary.removeBook(testLibrary.findByISBN("ISBN" + titles[i]).get(0));
+            } else {
+                expected.add(titles[i]);
+            }
+        }
+
+        List<BookEntry> books = testLibrary.getCurrentVersion().getBookData();
+        assertEquals("Unexpected amount of books in version.", expected.size(), books.size());
+        assertEquals("Unexpected last book of version.", expected.get(expected.size() - 1),
+                books.get(books.size() - 1).getTitle());
+        assertEquals("Unexpected book of version.", expected.get(100), books.get(100).getTitle());
+        assertEquals("Unexpected books in version.", expected, titles());
+    }
+
+    @Test
+    public void testRemoveRowsOfEarlierVersion() {
+        addBooks("TitleD", "TitleE", "TitleF");
+        LibraryVersion before = testLibrary.getCurrentVersion();
+        testLibrary.removeBook(testLibrary.findByTitleIgnoreCase("TitleA").get(0));
+
+        // rows of an earlier version still refer to its books, of which TitleA was removed already
+        assertEquals("Unexpected amount of books removed.", 1, testLibrary.removeRows(before, RowSet.of(0, 2)));
+        assertEquals("Unexpected remaining books.", List.of(TITLE_VALUE_ARGUMENT, "TitleD", "TitleE", "TitleF"),
+                titles());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRemoveDuplicateBooks() {
+        List<BookEntry> bookData = testLibrary.getBookData();
+        BookEntry titleA = bookData.get(0);
+        BookEntry titleB = bookData.get(1);
+        BookEntry titleC = bookData.get(2);
+        bookData.add(new BookEntry("TitleA", new String[] { "AuthorA" }, 3.2f, "ISBNA", 500));
+        bookData.add(new BookEntry("TitleC", new String[] { "AuthorC" }, 1.3f, "ISBNC", 300));
+        testLibrary.findByAuthor("AuthorA");
+
+        assertEquals("Unexpected amount of books removed.", 3, testLibrary.removeBooks(List.of(titleA, titleB, titleC)));
+        Set<BookEntry> bookSet = (Set<BookEntry>) FieldTestUtils.getPrivateField(testLibrary, LibraryData.class,
+                "bookSet");
+        assertTrue("Book expected to be known while an equal copy remains.", bookSet.contains(titleA));
+        assertTrue("Book expected to be known while an equal copy remains.", bookSet.contains(titleC));
+        assertFalse("Book without remaining copy expected to be forgotten.", bookSet.contains(titleB));
+
+        assertEquals("Unexpected amount of books removed.", 2,
+                testLibrary.removeBooks(new ArrayList<>(testLibrary.getBookData())));
+        bookSet = (Set<BookEntry>) FieldTestUtils.getPrivateField(testLibrary, LibraryData.class, "bookSet");
+        assertTrue("Books expected to be forgotten once no copy remains.", bookSet.isEmpty());
+    }
+
+    @Test
+    public void testLookupsShareTheLockWithoutWrites() throws Exception {
+        testLibrary.findByAuthor(AUTHOR_VALUE_ARGUMENT);
+        BookEntry toRemove = testLibrary.findByISBN("ISBNA").get(0);
+        StampedLock lock = (StampedLock) FieldTestUtils.getPrivateField(testLibrary, LibraryData.class, "lock");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // a reader holding the lock lets lookups through but holds up removals
+            long stamp = lock.readLock();
+            Future<Boolean> removal;
+            try {
+                assertEquals("Lookup expected to run while another reader holds the lock.", 1,
+                        executor.submit(() -> testLibrary.findByISBN("ISBNC")).get(5, TimeUnit.SECONDS).size());
+                removal = executor.submit(() -> testLibrary.removeBook(toRemove));
+                Thread.sleep(200);
+                assertFalse("Removal expected to wait for the reader.", removal.isDone());
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            assertTrue("Removal expected to succeed once the reader is done.", removal.get(5, TimeUnit.SECONDS));
+
+            // a writer holding the lock fails the optimistic read, so lookups wait and see the finished write
+            stamp = lock.writeLock();
+            Future<List<BookEntry>> lookup;
+            try {
+                lookup = executor.submit(() -> testLibrary.findByISBN("ISBNA"));
+                Thread.sleep(200);
+                assertFalse("Lookup expected to wait for the writer.", lookup.isDone());
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            assertEquals("Removed book expected to be gone once the writer is done.", 0,
+                    lookup.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFindWhileRemoving() throws Exception {
+        String[] titles = new String[2000];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = "Title" + i;
+        }
+        addBooks(titles);
+
+        // removals compact the book data and rebuild the indexes while the readers look up books
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (String title : titles) {
+                    testLibrary.removeBooks(testLibrary.findByTitleIgnoreCase(title));
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                readers.add(executor.submit(() -> {
+                    int lookups = 0;
+                    int previous = titles.length;
+                    do {
+                        String title = titles[lookups++ % titles.length];
+                        for (BookEntry found : testLibrary.findByISBN("ISBN" + title)) {
+                            assertEquals("Book found by ISBN expected to have the ISBN.", "ISBN" + title,
+                                    found.getISBN());
+                        }
+                        int remaining = testLibrary.findByAuthor("AuthorD").size();
+                        assertTrue("Books of an author expected to decrease only.", remaining <= previous);
+                        previous = remaining;
+                    } while (!writer.isDone());
+                    return null;
+                }));
+            }
+
+            writer.get();
+            // rethrows any failed assertion of the readers
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Unexpected amount of remaining books.", 3, testLibrary.getBookData().size());
+    }
+
+    /**
+     * Add books with the given titles to the book data and index them.
+     *
+     * @param titles titles of the books to be added
+     */
+    private void addBooks(String... titles) {
+        for (String title : titles) {
+            testLibrary.getBookData().add(new BookEntry(title, new String[] { "AuthorD" }, 2.1f, "ISBN" + title, 200));
+        }
+        testLibrary.findByAuthor("AuthorD");
+    }
+
+    /**
+     * Get the titles of the books of the current version.
+     *
+     * @return titles in book data order
+     */
+    private List<String> titles() {
+        List<String> titles = new ArrayList<>();
+        for (BookEntry book : testLibrary.getCurrentVersion().getBookData()) {
+            titles.add(book.getTitle());
+        }
+        return titles;
+    }
 }
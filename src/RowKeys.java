@@ -0,0 +1,250 @@
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * 64 bit keys of the rows of a book list which creates its entries on
+ * access, used to find equal rows without decoding every row. A key only
+ * preselects rows: the rows holding the key of an entry are decoded and
+ * compared by value, so two different rows sharing a key are never taken
+ * for duplicates. Each row keeps its own key, so removing a row never drops
+ * the key of an equal row still held.
+ *
+ * Keys are held in row order next to a table of the first row holding each
+ * key, based on open addressing with linear probing. Rows being inserted
+ * or removed only mark the table as outdated, and it is rebuilt from the
+ * keys on the next lookup, so bulk removals rebuild it once. Together they
+ * take about 16 bytes per row.
+ *
+ * This class is not thread-safe.
+ */
+final class RowKeys {
+
+    /** Initial number of rows and table slots. Always a power of two. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Marker of a free table slot. */
+    private static final int FREE = 0;
+
+    /** Key of each row. */
+    private long[] keys;
+
+    /** Number of rows. */
+    private int size;
+
+    /** First row holding a key plus one per slot, FREE for free slots. */
+    private int[] table;
+
+    /** True if rows were inserted or removed since the table was built. */
+    private boolean outdated;
+
+    /** Create keys for no rows. */
+    RowKeys() {
+        keys = new long[INITIAL_CAPACITY];
+        size = 0;
+        table = new int[INITIAL_CAPACITY * 2];
+        outdated = false;
+    }
+
+    /**
+     * Compute the key representing the values of a book entry. Equal
+     * entries always have equal keys. The key is never 0.
+     *
+     * @param book book entry to compute the key for
+     * @return 64 bit key of the entry
+     */
+    static long keyOf(BookEntry book) {
+        long hash = mix(0xCBF29CE484222325L, book.getTitle());
+        for (int i = 0; i < book.getAuthorCount(); i++) {
+            hash = mix(hash, book.getAuthor(i));
+        }
+        hash = mix(hash, book.getISBN());
+        hash = (hash ^ Float.floatToIntBits(book.getRating())) * 0x100000001B3L;
+        hash = (hash ^ book.getPages()) * 0x100000001B3L;
+
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Find the first row equal to the given entry. Only rows holding the key
+     * of the entry are looked up and compared.
+     *
+     * @param book entry to look for
+     * @param key key of the entry, see keyOf
+     * @param rows function looking up the entry of a row
+     * @return first row equal to the entry or -1 if there is none
+     */
+    int find(BookEntry book, long key, IntFunction<BookEntry> rows) {
+        for (int row = firstRow(key); row >= 0; row = nextRow(key, row)) {
+            if (rows.apply(row).equals(book)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Insert the key of a row inserted at the given position.
+     *
+     * @param row position of the new row
+     * @param key key of the new row
+     */
+    void add(int row, long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        System.arraycopy(keys, row, keys, row + 1, size - row);
+        keys[row] = key;
+        size++;
+
+        if (row < size - 1) {
+            outdated = true;
+        } else if (!outdated) {
+            if (size * 2 > table.length) {
+                // the table is rebuilt larger on the next lookup
+                outdated = true;
+            } else {
+                insert(row);
+            }
+        }
+    }
+
+    /**
+     * Remove the key of the row at the given position.
+     *
+     * @param row position of the removed row
+     */
+    void remove(int row) {
+        System.arraycopy(keys, row + 1, keys, row, size - row - 1);
+        size--;
+        outdated = true;
+    }
+
+    /**
+     * Move the key of a row to a lower position while rows are removed in
+     * a single pass. The pass ends with truncate.
+     *
+     * @param from position of the kept row
+     * @param to new position of the kept row
+     */
+    void move(int from, int to) {
+        keys[to] = keys[from];
+    }
+
+    /**
+     * Drop the keys of all rows from the given position on.
+     *
+     * @param newSize number of rows kept
+     */
+    void truncate(int newSize) {
+        if (newSize < size) {
+            size = newSize;
+            outdated = true;
+        }
+    }
+
+    /**
+     * Get the first row holding the given key, rebuilding the table if it
+     * is outdated.
+     *
+     * @param key key to look for
+     * @return first row holding the key or -1 if there is none
+     */
+    private int firstRow(long key) {
+        if (outdated) {
+            rebuild();
+        }
+        int slot = slotOf(key);
+        return table[slot] - 1;
+    }
+
+    /**
+     * Get the next row holding the given key. Rows sharing a key are rare,
+     * so they are looked for by walking the keys.
+     *
+     * @param key key to look for
+     * @param row row holding the key
+     * @return next row holding the key or -1 if there is none
+     */
+    private int nextRow(long key, int row) {
+        for (int next = row + 1; next < size; next++) {
+            if (keys[next] == key) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Enter the given row into the table unless an earlier row holds its key.
+     *
+     * @param row row to be entered
+     */
+    private void insert(int row) {
+        int slot = slotOf(keys[row]);
+        if (table[slot] == FREE) {
+            table[slot] = row + 1;
+        }
+    }
+
+    /** Build the table again from the keys of all rows, growing it to keep its load factor at or below one half. */
+    private void rebuild() {
+        int capacity = table.length;
+        while (size * 2 > capacity) {
+            capacity *= 2;
+        }
+        if (capacity == table.length) {
+            Arrays.fill(table, FREE);
+        } else {
+            table = new int[capacity];
+        }
+
+        for (int row = 0; row < size; row++) {
+            insert(row);
+        }
+        outdated = false;
+    }
+
+    /**
+     * Find the slot holding the first row with the given key or the free
+     * slot it would be entered in.
+     *
+     * @param key key to look for
+     * @return index of the slot
+     */
+    private int slotOf(long key) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+
+        while (table[slot] != FREE && keys[table[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spread the bits of the given key so that similar keys end up in different slots.
+     *
+     * @param key key to be mixed
+     * @return mixed hash of the key
+     */
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Mix all characters of a value into a FNV-1a hash.
+     *
+     * @param hash current hash
+     * @param value value to be mixed in
+     * @return new hash
+     */
+    private static long mix(long hash, String value) {
+        long result = hash;
+        for (int i = 0; i < value.length(); i++) {
+            result = (result ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        // separates consecutive values so that "ab","c" and "a","bc" differ
+        return (result ^ 0xFFFF) * 0x100000001B3L;
+    }
+}
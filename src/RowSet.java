@@ -0,0 +1,307 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of rows, i.e. positions of books in a version of the book
+ * data, which queries produce before any book is touched. Books and their
+ * titles are only looked up for the rows finally output, and removeRows of
+ * LibraryData takes the rows of the current version as the positions of the
+ * books to remove.
+ *
+ * A set holding few rows compared to its highest row keeps them as a sorted
+ * int array, a denser set as a bit set, whichever takes less memory.
+ */
+public final class RowSet {
+
+    /** Set holding no rows. */
+    private static final RowSet EMPTY = new RowSet(new int[0], 0, 0);
+
+    /** Sorted and distinct rows from index from to index to or null if the rows are held as bits. */
+    private final int[] rows;
+
+    /** Index of the first row in rows. */
+    private final int from;
+
+    /** Index after the last row in rows. */
+    private final int to;
+
+    /** Rows held as set bits or null if they are held as an array. */
+    private final BitSet bits;
+
+    /** Number of rows held. */
+    private final int size;
+
+    /**
+     * Create a set of rows held in part of a sorted array, which is not copied.
+     *
+     * @param rows sorted and distinct rows
+     * @param from index of the first row
+     * @param to index after the last row
+     */
+    private RowSet(int[] rows, int from, int to) {
+        this.rows = rows;
+        this.from = from;
+        this.to = to;
+        this.bits = null;
+        this.size = to - from;
+    }
+
+    /**
+     * Create a set of rows held as bits, which are not copied.
+     *
+     * @param bits rows as set bits
+     */
+    private RowSet(BitSet bits) {
+        this.rows = null;
+        this.from = 0;
+        this.to = 0;
+        this.bits = bits;
+        this.size = bits.cardinality();
+    }
+
+    /**
+     * Get the set holding no rows.
+     *
+     * @return empty set
+     */
+    public static RowSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Create a set of the given rows.
+     *
+     * @param rows rows in any order, possibly repeated
+     * @return set of the given rows
+     * @throws NullPointerException if the given array is null
+     * @throws IllegalArgumentException if any of the given rows is negative
+     */
+    public static RowSet of(int... rows) {
+        Objects.requireNonNull(rows, "Given rows must not be null.");
+
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        if (sorted.length > 0 && sorted[0] < 0) {
+            throw new IllegalArgumentException("Given rows must not be negative.");
+        }
+
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || sorted[distinct - 1] != sorted[i]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return new RowSet(sorted, 0, distinct);
+    }
+
+    /**
+     * Create a set of the rows set in the given bits.
+     *
+     * @param bits rows as set bits
+     * @return set of the given rows
+     * @throws NullPointerException if the given bits are null
+     */
+    public static RowSet of(BitSet bits) {
+        Objects.requireNonNull(bits, "Given bits must not be null.");
+        return compact((BitSet) bits.clone());
+    }
+
+    /**
+     * Create a set of all rows in the given range.
+     *
+     * @param from first row
+     * @param to row after the last row
+     * @return set of the rows from from to to
+     * @throws IllegalArgumentException if the range is negative or reversed
+     */
+    public static RowSet range(int from, int to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Given range must not be negative or reversed.");
+        }
+
+        BitSet bits = new BitSet(to);
+        bits.set(from, to);
+        return compact(bits);
+    }
+
+    /**
+     * Create a set of the rows held in part of the given array, without
+     * copying them. The caller must not change the array afterwards.
+     *
+     * @param rows sorted and distinct rows
+     * @param from index of the first row
+     * @param to index after the last row
+     * @return set of the given rows
+     */
+    static RowSet sharing(int[] rows, int from, int to) {
+        return from == to ? EMPTY : new RowSet(rows, from, to);
+    }
+
+    /**
+     * Number of rows held.
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Does this set hold no rows?
+     *
+     * @return true if there are no rows
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Is the given row held?
+     *
+     * @param row row to look for
+     * @return true if the row is held
+     */
+    public boolean contains(int row) {
+        if (row < 0) {
+            return false;
+        }
+        if (bits != null) {
+            return bits.get(row);
+        }
+        return Arrays.binarySearch(rows, from, to, row) >= 0;
+    }
+
+    /**
+     * Get the lowest row held.
+     *
+     * @return first row
+     * @throws NoSuchElementException if this set is empty
+     */
+    public int first() {
+        if (size == 0) {
+            throw new NoSuchElementException("Set of rows is empty.");
+        }
+        return bits != null ? bits.nextSetBit(0) : rows[from];
+    }
+
+    /**
+     * Get the highest row held.
+     *
+     * @return last row
+     * @throws NoSuchElementException if this set is empty
+     */
+    public int last() {
+        if (size == 0) {
+            throw new NoSuchElementException("Set of rows is empty.");
+        }
+        return bits != null ? bits.length() - 1 : rows[to - 1];
+    }
+
+    /**
+     * Pass every row held to the given action, lowest row first.
+     *
+     * @param action action taking each row
+     * @throws NullPointerException if the given action is null
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action, "Given action must not be null.");
+
+        if (bits != null) {
+            for (int row = bits.nextSetBit(0); row >= 0; row = bits.nextSetBit(row + 1)) {
+                action.accept(row);
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                action.accept(rows[i]);
+            }
+        }
+    }
+
+    /**
+     * Get all rows held.
+     *
+     * @return new array of the rows in ascending order
+     */
+    public int[] toArray() {
+        return bits != null ? bits.stream().toArray() : Arrays.copyOfRange(rows, from, to);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RowSet)) {
+            return false;
+        }
+
+        RowSet that = (RowSet) other;
+        return size == that.size && Arrays.equals(toArray(), that.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Hold the given bits in whichever representation takes less memory.
+     *
+     * @param bits rows as set bits, owned by the returned set
+     * @return set of the given rows
+     */
+    private static RowSet compact(BitSet bits) {
+        int count = bits.cardinality();
+        if ((long) count * Integer.SIZE < bits.length()) {
+            return count == 0 ? EMPTY : new RowSet(bits.stream().toArray(), 0, count);
+        }
+        return new RowSet(bits);
+    }
+
+    /**
+     * Collects rows in any order into a set, e.g. while a query visits the
+     * books of a version. Rows are collected as bits, so a builder takes a
+     * bit per row up to the highest row added.
+     */
+    public static final class Builder {
+
+        /** Rows added so far. */
+        private BitSet bits;
+
+        /** Create a new builder holding no rows. */
+        public Builder() {
+            bits = new BitSet();
+        }
+
+        /**
+         * Add the given row.
+         *
+         * @param row row to be added
+         * @return this builder
+         * @throws IndexOutOfBoundsException if the given row is negative
+         */
+        public Builder add(int row) {
+            bits.set(row);
+            return this;
+        }
+
+        /**
+         * Create the set of all rows added and start again with no rows.
+         *
+         * @return set of the rows added
+         */
+        public RowSet build() {
+            RowSet built = compact(bits);
+            bits = new BitSet();
+            return built;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class RowSetBasicTest {
+
+    /** Rows spread far apart, which are held as an array. */
+    private static final RowSet SPARSE = RowSet.of(900, 3, 5000, 3);
+
+    /** Rows next to each other, which are held as bits. */
+    private static final RowSet DENSE = RowSet.range(0, 1000);
+
+    // ------------------------- construction tests --------------------
+
+    @Test
+    public void testOfSortsAndRemovesRepeatedRows() {
+        assertArrayEquals("Rows expected sorted and distinct.", new int[] { 3, 900, 5000 }, SPARSE.toArray());
+        assertEquals("Unexpected number of rows.", 3, SPARSE.size());
+        assertEquals("Unexpected first row.", 3, SPARSE.first());
+        assertEquals("Unexpected last row.", 5000, SPARSE.last());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfNegativeRow() {
+        RowSet.of(1, -1);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmptySet() {
+        RowSet.empty().first();
+    }
+
+    @Test
+    public void testEqualRegardlessOfRepresentation() {
+        BitSet bits = new BitSet();
+        bits.set(3);
+        bits.set(900);
+        bits.set(5000);
+        assertEquals("Sets holding the same rows expected equal.", SPARSE, RowSet.of(bits));
+        assertEquals("Equal sets expected to have equal hash codes.", SPARSE.hashCode(), RowSet.of(bits).hashCode());
+
+        int[] rows = new int[1000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        assertEquals("Sets holding the same rows expected equal.", DENSE, RowSet.of(rows));
+    }
+
+    @Test
+    public void testBuilderCollectsRowsInAnyOrder() {
+        RowSet.Builder builder = new RowSet.Builder();
+        builder.add(5000).add(3).add(900).add(3);
+        assertEquals("Unexpected rows built.", SPARSE, builder.build());
+        assertTrue("Builder expected to start again after building.", builder.build().isEmpty());
+    }
+
+    @Test
+    public void testContains() {
+        assertTrue("Row expected to be held.", SPARSE.contains(900));
+        assertFalse("Row not expected to be held.", SPARSE.contains(901));
+        assertFalse("Row not expected to be held.", SPARSE.contains(-1));
+        assertTrue("Row expected to be held.", DENSE.contains(999));
+        assertFalse("Row not expected to be held.", DENSE.contains(1000));
+    }
+
+    @Test
+    public void testForEachVisitsRowsInOrder() {
+        List<Integer> visited = new ArrayList<>();
+        SPARSE.forEach(visited::add);
+        assertEquals("Rows not visited in order.", List.of(3, 900, 5000), visited);
+
+        visited.clear();
+        RowSet.range(7, 10).forEach(visited::add);
+        assertEquals("Rows not visited in order.", List.of(7, 8, 9), visited);
+    }
+}
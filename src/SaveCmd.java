@@ -0,0 +1,60 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Save command that allows the current library to be written to a binary snapshot file.
+ */
+public class SaveCmd extends LibraryCommand {
+
+    /** Instance field for path name. */
+    private Path pathName;
+
+    /**
+     * Create the save command and initialise it with
+     * the given command argument.
+     *
+     * @param argumentInput argument input as expected by the extending subclass.
+     * @throws IllegalArgumentException if given arguments are invalid
+     * @throws NullPointerException     if any of the given parameters are null.
+     */
+    public SaveCmd(String argumentInput) {
+        super(CommandType.SAVE, argumentInput);
+
+    }
+
+    /**
+     * Parses the argument input. Checks the input has the ending of a snapshot file
+     * so the file can be recognised by the add command later on.
+     *
+     * @param argumentInput input from user.
+     * @return true if argument is valid.
+     * @return false if argument is invalid.
+     * @throws NullPointerException if argument input is null.
+     */
+    @Override
+    protected boolean parseArguments(String argumentInput) {
+        Objects.requireNonNull(argumentInput, "Path name cannot be null");
+
+        if (argumentInput.endsWith(BinarySnapshot.FILE_SUFFIX)) {
+            pathName = Paths.get(argumentInput);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Execute the save command. This writes all book data of the library
+     * to the snapshot file.
+     *
+     * @param data book data to be considered for command execution.
+     * @throws NullPointerException when data is null.
+     */
+    @Override
+    public void execute(LibraryData data) {
+        Objects.requireNonNull(data, "Given library data must not be null.");
+        data.saveSnapshot(pathName);
+    }
+
+}
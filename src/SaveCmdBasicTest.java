@@ -0,0 +1,206 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SaveCmdBasicTest extends CommandTest {
+
+    private Path snapshotPath;
+
+    @Override
+    protected CommandType getCmdType() {
+        return CommandType.SAVE;
+    }
+
+    @Before
+    public void setup() throws IOException {
+        snapshotPath = Files.createTempFile("library", BinarySnapshot.FILE_SUFFIX);
+        testCommand = new SaveCmd(snapshotPath.toString());
+
+        testLibrary = new LibraryData();
+        List<BookEntry> bookData = new ArrayList<>();
+        bookData.add(new BookEntry("TitleA", new String[] { "AuthorA" }, 3.2f, "ISBNA", 500));
+        bookData.add(new BookEntry("TitleB", new String[] { "AuthorA", "AuthorB" }, 4.3f, "ISBNB", 400));
+        FieldTestUtils.setPrivateField(testLibrary, testLibrary.getClass(), "books", bookData);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(snapshotPath);
+    }
+
+    // ------------------------- parseArguments tests --------------------
+
+    @Test
+    public void testParseArgumentsIllegalArgument() {
+        String blankArg = "";
+        CommandTestUtils.checkArgumentInput(testCommand, false, blankArg);
+        CommandTestUtils.checkArgumentInput(testCommand, false, "books.csv");
+        CommandTestUtils.checkArgumentInput(testCommand, false, "this/is/not/a/snapshot.txt");
+    }
+
+    @Test
+    public void testParseArgumentsLegalArgument() {
+        CommandTestUtils.checkArgumentInput(testCommand, true, "library" + BinarySnapshot.FILE_SUFFIX);
+        CommandTestUtils.checkArgumentInput(testCommand, true, "this/is/some/test/path/for/library.snapshot");
+    }
+
+    // ------------------------- execute tests --------------------
+
+    @Test
+    public void testExecuteConsoleOut() {
+        String expectedConsoleOutput = "2 book entries saved to: " + snapshotPath;
+        CommandTestUtils.checkExecuteConsoleOutput(testCommand, testLibrary, expectedConsoleOutput);
+    }
+
+    @Test
+    public void testExecuteRoundTrip() {
+        testCommand.execute(testLibrary);
+
+        LibraryData loadedLibrary = new LibraryData();
+        new AddCmd(snapshotPath.toString()).execute(loadedLibrary);
+
+        List<BookEntry> books = loadedLibrary.getBookData();
+        assertEquals("Unexpected amount of books in library after loading snapshot.", 2, books.size());
+
+        List<Object[]> expectedBookValues = new ArrayList<>();
+        expectedBookValues.add(new Object[] { "TitleA", new String[] { "AuthorA" }, 3.2f, "ISBNA", 500 });
+        expectedBookValues.add(new Object[] { "TitleB", new String[] { "AuthorA", "AuthorB" }, 4.3f, "ISBNB", 400 });
+
+        for (int i = 0; i < books.size(); i++) {
+            BookEntryTestUtils.checkBookFieldValues(books.get(i), BookEntryBasicTest.BOOK_ENTRY_FIELD_NAMES,
+                    expectedBookValues.get(i));
+        }
+    }
+
+    @Test
+    public void testFailedSaveKeepsEarlierSnapshot() throws IOException {
+        testCommand.execute(testLibrary);
+        testLibrary.removeBook(testLibrary.findByISBN("ISBNA").get(0));
+
+        // the temporary file cannot be written where a directory is in the way
+        Path temporary = Paths.get(snapshotPath + ".tmp");
+        Files.createDirectory(temporary);
+        try {
+            assertFalse("Saving over a directory should fail.", testLibrary.saveSnapshot(snapshotPath));
+        } finally {
+            Files.delete(temporary);
+        }
+        assertEquals("Earlier snapshot expected to be intact after a failed save.", 2,
+                BinarySnapshot.read(snapshotPath, new AuthorDictionary()).size());
+
+        assertTrue("Saving expected to succeed.", testLibrary.saveSnapshot(snapshotPath));
+        assertEquals("Snapshot expected to be replaced.", 1,
+                BinarySnapshot.read(snapshotPath, new AuthorDictionary()).size());
+        assertFalse("No temporary file expected to be left behind.", Files.exists(temporary));
+    }
+
+    // ------------------------- corrupt snapshot tests --------------------
+
+    // offsets in the snapshot of the two books set up: header, dictionary, titles, ISBNs, authors, ratings, pages
+    private static final int BOOK_COUNT_OFFSET = 8;
+    private static final int DICTIONARY_SIZE_OFFSET = 12;
+    private static final int FIRST_AUTHOR_NAME_OFFSET = 16;
+    private static final int FIRST_AUTHOR_ID_OFFSET = 80;
+    private static final int FIRST_PAGES_OFFSET = 104;
+
+    @Test
+    public void testReadTruncatedSnapshot() throws IOException {
+        testCommand.execute(testLibrary);
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.WRITE)) {
+            channel.truncate(50);
+        }
+        checkSnapshotRejected("truncated snapshot");
+    }
+
+    @Test
+    public void testReadSnapshotWithInvalidCounts() throws IOException {
+        testCommand.execute(testLibrary);
+        corrupt(BOOK_COUNT_OFFSET, Integer.MAX_VALUE);
+        checkSnapshotRejected("huge number of books");
+
+        testCommand.execute(testLibrary);
+        corrupt(DICTIONARY_SIZE_OFFSET, -1);
+        checkSnapshotRejected("negative number of authors");
+    }
+
+    @Test
+    public void testReadSnapshotWithInvalidStringLength() throws IOException {
+        testCommand.execute(testLibrary);
+        corrupt(FIRST_AUTHOR_NAME_OFFSET, -5);
+        checkSnapshotRejected("negative string length");
+
+        testCommand.execute(testLibrary);
+        corrupt(FIRST_AUTHOR_NAME_OFFSET, Integer.MAX_VALUE);
+        checkSnapshotRejected("string longer than the file");
+    }
+
+    @Test
+    public void testReadSnapshotWithInvalidAuthorId() throws IOException {
+        testCommand.execute(testLibrary);
+        corrupt(FIRST_AUTHOR_ID_OFFSET, 2);
+        checkSnapshotRejected("author id past the dictionary");
+
+        testCommand.execute(testLibrary);
+        corrupt(FIRST_AUTHOR_ID_OFFSET, -1);
+        checkSnapshotRejected("negative author id");
+    }
+
+    @Test
+    public void testReadSnapshotWithInvalidBookValues() throws IOException {
+        testCommand.execute(testLibrary);
+        corrupt(FIRST_PAGES_OFFSET, -1);
+        checkSnapshotRejected("negative number of pages");
+    }
+
+    @Test
+    public void testLoadCorruptSnapshotKeepsLibrary() throws IOException {
+        testCommand.execute(testLibrary);
+        corrupt(FIRST_AUTHOR_ID_OFFSET, 1000);
+
+        assertFalse("Loading a corrupt snapshot should fail.", testLibrary.loadSnapshot(snapshotPath));
+        assertEquals("Unexpected amount of books in library after failed loading of snapshot.", 2,
+                testLibrary.getBookData().size());
+    }
+
+    /**
+     * Overwrite an int of the snapshot at the given file offset.
+     *
+     * @param offset file offset of the int
+     * @param value value written instead
+     * @throws IOException if the snapshot could not be written
+     */
+    private void corrupt(int offset, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), offset);
+        }
+    }
+
+    /**
+     * Check that reading the snapshot fails with an IOException.
+     *
+     * @param damage description of the damage done to the snapshot
+     */
+    private void checkSnapshotRejected(String damage) {
+        try {
+            BinarySnapshot.read(snapshotPath, new AuthorDictionary());
+            fail("Reading a snapshot with a " + damage + " should fail.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -1,4 +1,3 @@
-import java.util.ArrayList;
 import java.util.Objects;
 
 /**
@@ -46,6 +45,7 @@ public class SearchCmd extends LibraryCommand {
 
     /**
      * Execute the search command. This searches for books where the title contains an inputted value.
+     * Matching books are collected as rows of the current version, whose titles are looked up for output only.
      *
      * @param data book data to be considered for command execution.
      * @throws NullPointerException when data is null.
@@ -54,25 +54,18 @@ public class SearchCmd extends LibraryCommand {
     public void execute(LibraryData data) {
         Objects.requireNonNull(data, "Given library data must not be null.");
         LibraryData libraryData = data;
-        ArrayList<BookEntry> bookData = (ArrayList<BookEntry>) libraryData.getBookData();
+        // reads an immutable version, so concurrent writes cannot change the searched books
+        LibraryVersion libraryVersion = libraryData.getCurrentVersion();
         String lowerSearchValue = searchValue.toLowerCase();
-        int matches = 0;
-
-        //gets the title of a book and checks to see if this contains the search value
-        for (int i = 0; i < bookData.size(); i++) {
-            BookEntry book = bookData.get(i);
-            String title = book.getTitle();
-            String lowerTitle = title.toLowerCase();
-
-            if (lowerTitle.contains(lowerSearchValue)) {
-                matches = matches + 1;
-                System.out.println(title);
-            }
 
+        //checks to see if the title of a book contains the search value
+        RowSet matches = libraryVersion.findRows(book -> book.getTitle().toLowerCase().contains(lowerSearchValue));
+        for (BookEntry book : libraryVersion.getBooks(matches)) {
+            System.out.println(book.getTitle());
         }
 
         //if no matches are found display message
-        if (matches == 0) {
+        if (matches.isEmpty()) {
             System.out.println("No hits found for search term: " + searchValue);
 
         }